@@ -0,0 +1,232 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.config.JpaQuestRepositoryConfiguration;
+import dev.terralab.blog.examples.pactquestdemo.config.JpaRepositoryProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.JpaQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestEntity;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares {@link JpaQuestRepository} with a straightforward Spring Data adapter against an
+ * H2 database in file mode. The contexts are assembled here rather than from the application
+ * class so that neither is picked up by component scanning elsewhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JpaRepositoryBenchmark {
+
+    @Param({"tuned", "naive"})
+    public String implementation;
+
+    @Param({"10000"})
+    public int quests;
+
+    private static final int HOT_QUESTS = 100;
+    private static final int BATCH = 100;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private QuestRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("quest-jpa");
+        context = new SpringApplicationBuilder("tuned".equals(implementation) ? TunedContext.class : NaiveContext.class)
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:file:" + directory.resolve("quests").toAbsolutePath(),
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=sa",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.open-in-view=false",
+                        "quest.repository.type=" + ("tuned".equals(implementation) ? "jpa" : "naive"))
+                .run();
+        repository = context.getBean(QuestRepository.class);
+        List<Quest> all = new ArrayList<>(quests);
+        for (long id = 1; id <= quests; id++) {
+            all.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        repository.saveAll(all);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Optional<Quest> findHotQuestById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(1, HOT_QUESTS + 1));
+    }
+
+    @Benchmark
+    public int findAll() {
+        return repository.findAll().size();
+    }
+
+    @Benchmark
+    public void saveBatch() {
+        long first = ThreadLocalRandom.current().nextLong(1, quests - BATCH + 2);
+        List<Quest> batch = new ArrayList<>(BATCH);
+        for (long id = first; id < first + BATCH; id++) {
+            batch.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, ThreadLocalRandom.current().nextInt(1000) + " XP"));
+        }
+        repository.saveAll(batch);
+    }
+
+    @Benchmark
+    public boolean toggleStatus() {
+        long id = ThreadLocalRandom.current().nextLong(1, HOT_QUESTS + 1);
+        Status current = repository.findById(id).orElseThrow().getStatus();
+        return repository.compareAndSetStatus(id, current, current == Status.NOT_STARTED ? Status.IN_PROGRESS : Status.NOT_STARTED);
+    }
+
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = QuestEntity.class)
+    @EnableConfigurationProperties(JpaRepositoryProperties.class)
+    @Import({JpaQuestRepositoryConfiguration.class, JpaQuestRepository.class})
+    static class TunedContext {
+    }
+
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = QuestEntity.class)
+    @EnableJpaRepositories(basePackageClasses = JpaRepositoryBenchmark.class, considerNestedRepositories = true)
+    static class NaiveContext {
+
+        @Bean
+        QuestRepository naiveQuestRepository(QuestEntityRepository entities) {
+            return new NaiveJpaQuestRepository(entities);
+        }
+    }
+
+    interface QuestEntityRepository extends JpaRepository<QuestEntity, Long> {
+    }
+
+    /**
+     * What a first JPA implementation typically looks like: entities are loaded and saved one
+     * at a time through Spring Data, without batching or caching.
+     */
+    static class NaiveJpaQuestRepository implements QuestRepository {
+
+        private final QuestEntityRepository entities;
+        private final AtomicLong version = new AtomicLong();
+
+        NaiveJpaQuestRepository(QuestEntityRepository entities) {
+            this.entities = entities;
+        }
+
+        @Override
+        public Optional<Quest> findById(Long id) {
+            return entities.findById(id).map(QuestEntity::toQuest);
+        }
+
+        @Override
+        public List<Quest> findAllById(Collection<Long> ids) {
+            return entities.findAllById(ids).stream().map(QuestEntity::toQuest).toList();
+        }
+
+        @Override
+        public List<Quest> findAll() {
+            return entities.findAll().stream().map(QuestEntity::toQuest).toList();
+        }
+
+        @Override
+        public List<Quest> findAllAfter(Long afterId, int limit) {
+            return findAll().stream()
+                    .filter(quest -> afterId == null || quest.getId() > afterId)
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public List<Quest> findAllByStatus(Set<Status> statuses) {
+            return findAll().stream().filter(quest -> statuses.contains(quest.getStatus())).toList();
+        }
+
+        @Override
+        public long countByStatus(Status status) {
+            return findAll().stream().filter(quest -> quest.getStatus() == status).count();
+        }
+
+        @Override
+        public void save(Quest quest) {
+            QuestEntity entity = entities.findById(quest.getId()).orElseGet(() -> QuestEntity.from(quest));
+            entity.apply(quest);
+            entities.save(entity);
+            version.incrementAndGet();
+        }
+
+        @Override
+        @Transactional
+        public void saveAll(Collection<Quest> quests) {
+            quests.forEach(this::save);
+        }
+
+        @Override
+        public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+            QuestEntity entity = entities.findById(id).orElse(null);
+            if (entity == null || entity.getStatus() != expected) {
+                return false;
+            }
+            entity.setStatus(next);
+            entities.save(entity);
+            version.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public long maxId() {
+            return entities.findAll().stream().mapToLong(QuestEntity::getId).max().orElse(0);
+        }
+
+        @Override
+        public long version() {
+            return version.get();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties.FsyncPolicy;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.MappedLogQuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to reopen a {@link MappedLogQuestRepository} holding {@code records} quests, either
+ * all still in the log or all compacted into the snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MappedLogRecoveryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int records;
+
+    @Param({"log", "snapshot"})
+    public String source;
+
+    private Path directory;
+    private MappedLogRepositoryProperties properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("quest-log-recovery");
+        properties = new MappedLogRepositoryProperties(directory,
+                DataSize.ofBytes((records + 1L) * MappedLogQuestRepository.RECORD_SIZE),
+                FsyncPolicy.NEVER, Duration.ofSeconds(1), Duration.ofDays(1), 1.0);
+        MappedLogQuestRepository repository = new MappedLogQuestRepository(properties);
+        List<Quest> batch = new ArrayList<>();
+        for (long id = 1; id <= records; id++) {
+            batch.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], (id % 10) * 100 + " XP"));
+            if (batch.size() == 10_000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+        if ("snapshot".equals(source)) {
+            repository.compact();
+        }
+        repository.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        MappedLogQuestRepository repository = new MappedLogQuestRepository(properties);
+        long version = repository.version();
+        repository.close();
+        return version;
+    }
+}
@@ -0,0 +1,130 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.PactQuestDemoApplication;
+import dev.terralab.blog.examples.pactquestdemo.client.QuestClient;
+import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.QuestManagerClient;
+import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.base.ApiResponse;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quest API calls per second from a single caller thread, comparing the blocking test client
+ * ({@code QuestManagerClient}), which holds one connection and waits for every response, with
+ * {@link QuestClient}. The {@code pipelined} update benchmarks issue {@value #PIPELINE}
+ * updates before waiting for any of them, which the batching client coalesces into
+ * {@code PATCH /quest} requests, so the gain is per connection rather than from using more of
+ * them. Every update moves a fresh quest to IN_PROGRESS and succeeds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QuestClientBenchmark {
+
+    private static final int PIPELINE = 64;
+    private static final int QUESTS = 300_000;
+
+    private ConfigurableApplicationContext context;
+    private QuestManagerClient blockingClient;
+    private QuestClient questClient;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PactQuestDemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        "quest.rate-limit.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        List<Quest> quests = new ArrayList<>(QUESTS);
+        for (long id = 1; id <= QUESTS; id++) {
+            quests.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        context.getBean(QuestRepository.class).saveAll(quests);
+
+        String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        blockingClient = new QuestManagerClient(baseUrl, httpClient);
+        questClient = new QuestClient(URI.create(baseUrl), httpClient, new ObjectMapper(), QuestClient.DEFAULT_BATCH_WINDOW, PIPELINE);
+        nextId = 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        questClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public ApiResponse<QuestManagerClient.QuestResponse> blockingGet() {
+        return blockingClient.getQuest(Long.toString(randomId()));
+    }
+
+    @Benchmark
+    public QuestResponseDto asyncGet() {
+        return questClient.getQuest(randomId()).join();
+    }
+
+    @Benchmark
+    public ApiResponse<QuestManagerClient.QuestResponse> blockingUpdate() {
+        return blockingClient.updateQuestStatus(Long.toString(nextId()), "IN_PROGRESS");
+    }
+
+    @Benchmark
+    public QuestResponseDto asyncUpdate() {
+        return questClient.updateQuestStatus(nextId(), "IN_PROGRESS").join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public Object pipelinedAsyncUpdate() {
+        CompletableFuture<?>[] updates = new CompletableFuture<?>[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            updates[i] = questClient.updateQuestStatus(nextId(), "IN_PROGRESS");
+        }
+        return CompletableFuture.allOf(updates).join();
+    }
+
+    private long nextId() {
+        long id = nextId++;
+        if (id > QUESTS) {
+            throw new IllegalStateException("Ran out of quests");
+        }
+        return id;
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, QUESTS + 1);
+    }
+}
@@ -0,0 +1,102 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.ColumnarQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestServiceFixtures;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Loads the same quests into the object-per-quest repository and the columnar one and
+ * reports the heap each retains after a full GC, plus the allocation and GC work of
+ * serializing {@code GET /quest} from it.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *   -Dbenchmark.main=dev.terralab.blog.examples.pactquestdemo.benchmark.QuestHeapFootprintBenchmark \
+ *   -Dbenchmark.args= -Dbenchmark.jvm.args="-Xmx4g -Dfootprint.quests=1000000"
+ * </pre>
+ * or {@code make footprint-benchmark FOOTPRINT_ARGS="-Dfootprint.quests=1000000"}.
+ */
+public class QuestHeapFootprintBenchmark {
+
+    private static final int QUESTS = Integer.getInteger("footprint.quests", 1_000_000);
+    private static final int REWARDS = Integer.getInteger("footprint.rewards", 20);
+    private static final int PASSES = Integer.getInteger("footprint.passes", 5);
+
+    public static void main(String[] args) throws Exception {
+        List<Result> results = new ArrayList<>();
+        results.add(measure("object", InMemoryQuestRepository::new));
+        results.add(measure("columnar", ColumnarQuestRepository::new));
+        System.out.printf("%n%-10s %12s %12s %16s %10s %10s%n", "model", "retained MB", "bytes/quest", "alloc MB/read", "gc count", "gc ms");
+        for (Result result : results) {
+            System.out.printf("%-10s %12.1f %12.1f %16.1f %10d %10d%n",
+                    result.model(), result.retainedBytes() / 1_048_576.0, result.retainedBytes() / (double) QUESTS,
+                    result.allocatedBytesPerRead() / 1_048_576.0, result.gcCount(), result.gcMillis());
+        }
+    }
+
+    private static Result measure(String model, Supplier<QuestRepository> factory) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+
+        QuestRepository repository = factory.get();
+        List<Quest> batch = new ArrayList<>(10_000);
+        for (long id = 1; id <= QUESTS; id++) {
+            batch.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], (id % REWARDS) * 100 + " XP"));
+            if (batch.size() == 10_000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+        batch = null;
+        repository.findAll();
+        long retained = usedHeapAfterGc(memory) - baseline;
+
+        QuestService questService = QuestServiceFixtures.questService(repository);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.writeValueAsBytes(questService.getQuests());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long[] gcBefore = gcCountAndMillis();
+        for (int pass = 0; pass < PASSES; pass++) {
+            objectMapper.writeValueAsBytes(questService.getQuests());
+        }
+        long allocated = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / PASSES;
+        long[] gcAfter = gcCountAndMillis();
+        Reference.reachabilityFence(repository);
+        return new Result(model, retained, allocated, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    private record Result(String model, long retainedBytes, long allocatedBytesPerRead, long gcCount, long gcMillis) {
+    }
+}
@@ -0,0 +1,91 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestSerializationProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestJsonFragments;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build the {@code GET /quest} JSON for lists of different sizes, on the request
+ * thread ({@code parallelism=1}) and on the serialization pool ({@code parallelism=0}, one
+ * thread per core), to find the {@code quest.serialization.parallel-threshold} above which
+ * the pool pays off. The parallel runs use a threshold of 0, so every list with more than one
+ * chunk goes to the pool.
+ * <p>
+ * With {@code fragments=warm} every quest's JSON fragment is already cached, which is the
+ * steady state of a list that is read more often than it changes; with {@code cold} every
+ * quest is renamed before each call, so all fragments are serialized again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuestListSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int quests;
+
+    @Param({"1", "0"})
+    public int parallelism;
+
+    @Param({"warm", "cold"})
+    public String fragments;
+
+    @Param({"1024"})
+    public int chunkSize;
+
+    private List<Quest> all;
+    private QuestJsonFragments jsonFragments;
+    private long renames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        all = new ArrayList<>(quests);
+        for (long id = 1; id <= quests; id++) {
+            all.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], (id % 10) * 100 + " XP"));
+        }
+        jsonFragments = new QuestJsonFragments(new ObjectMapper(), new QuestSerializationProperties(parallelism, 0, chunkSize, DataSize.ofMegabytes(64)));
+        jsonFragments.toJsonArray(all);
+    }
+
+    @Setup(Level.Invocation)
+    public void rename() {
+        if (fragments.equals("cold")) {
+            long round = ++renames;
+            for (Quest quest : all) {
+                quest.setName("Quest " + quest.getId() + " #" + round);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jsonFragments.close();
+    }
+
+    @Benchmark
+    public byte[] toJsonArray() {
+        return jsonFragments.toJsonArray(all);
+    }
+}
@@ -0,0 +1,57 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestMappingBenchmark {
+
+    private final Quest quest = new Quest(42L, "Slay the dragon", Status.IN_PROGRESS, "100 XP");
+    private final QuestResponseDto dto = QuestResponseDto.from(quest);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String validStatus = "IN_PROGRESS";
+    private String invalidStatus = "ON_HOLD";
+
+    @Benchmark
+    public QuestResponseDto questResponseDtoFrom() {
+        return QuestResponseDto.from(quest);
+    }
+
+    @Benchmark
+    public Status statusFromValid() {
+        return Status.from(validStatus);
+    }
+
+    @Benchmark
+    public Object statusFromInvalid() {
+        try {
+            return Status.from(invalidStatus);
+        } catch (InvalidStatusException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeQuest() throws Exception {
+        return objectMapper.writeValueAsBytes(dto);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestServiceFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the quest meters on the GET path. {@code noop} runs the same code against a
+ * registry without children, whose meters discard every recording, so the difference to
+ * {@code prometheus} is what timers with percentile histograms add. {@code getQuest} carries
+ * one, the repository's {@code findById} timer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestMetricsOverheadBenchmark {
+
+    @Param({"noop", "prometheus"})
+    public String registry;
+
+    @Param({"10000"})
+    public int quests;
+
+    private QuestService questService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryQuestRepository repository = new InMemoryQuestRepository();
+        List<Quest> all = new ArrayList<>(quests);
+        for (long id = 1; id <= quests; id++) {
+            all.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], (id % 10) * 100 + " XP"));
+        }
+        repository.saveAll(all);
+        MeterRegistry meterRegistry = "prometheus".equals(registry)
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new CompositeMeterRegistry();
+        questService = QuestServiceFixtures.questService(repository, new QuestMetrics(meterRegistry));
+    }
+
+    @Benchmark
+    public QuestResponseDto getQuest() {
+        return questService.getQuest(ThreadLocalRandom.current().nextLong(1, quests + 1));
+    }
+
+    @Benchmark
+    public byte[] getQuestsJson() {
+        return questService.getQuestsJson();
+    }
+
+    @Benchmark
+    public String getQuestsETag() {
+        return questService.getQuestsETag();
+    }
+}
@@ -0,0 +1,178 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestRepositoryBenchmark {
+
+    @Param({"striped", "concurrent-hash-map"})
+    public String implementation;
+
+    @Param({"10000", "1000000"})
+    public int quests;
+
+    private QuestRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = "striped".equals(implementation) ? new InMemoryQuestRepository() : new ConcurrentHashMapQuestRepository();
+        for (long id = 1; id <= quests; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        repository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Quest> findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public int findAll() {
+        return repository.findAll().size();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(7)
+    public Optional<Quest> readHeavyFindById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavySave() {
+        long id = randomId();
+        repository.save(new Quest(id, "Quest " + id, Status.IN_PROGRESS, "100 XP"));
+    }
+
+    @Benchmark
+    @Group("listWhileWriting")
+    @GroupThreads(3)
+    public int listWhileWritingFindAll() {
+        return repository.findAll().size();
+    }
+
+    @Benchmark
+    @Group("listWhileWriting")
+    @GroupThreads(1)
+    public void listWhileWritingSave() {
+        long id = randomId();
+        repository.save(new Quest(id, "Quest " + id, Status.COMPLETED, "100 XP"));
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, quests + 1L);
+    }
+
+    static class ConcurrentHashMapQuestRepository implements QuestRepository {
+
+        private final Map<Long, Quest> quests = new ConcurrentHashMap<>();
+        private final AtomicLong version = new AtomicLong();
+
+        @Override
+        public Optional<Quest> findById(Long id) {
+            return Optional.ofNullable(quests.get(id));
+        }
+
+        @Override
+        public List<Quest> findAllById(Collection<Long> ids) {
+            return ids.stream().map(quests::get).filter(Objects::nonNull).toList();
+        }
+
+        @Override
+        public List<Quest> findAll() {
+            return new ArrayList<>(quests.values());
+        }
+
+        @Override
+        public List<Quest> findAllAfter(Long afterId, int limit) {
+            return quests.values().stream()
+                    .filter(quest -> afterId == null || quest.getId() > afterId)
+                    .sorted(Comparator.comparing(Quest::getId))
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public List<Quest> findAllByStatus(Set<Status> statuses) {
+            return quests.values().stream()
+                    .filter(quest -> statuses.contains(quest.getStatus()))
+                    .sorted(Comparator.comparing(Quest::getId))
+                    .toList();
+        }
+
+        @Override
+        public long countByStatus(Status status) {
+            return quests.values().stream().filter(quest -> quest.getStatus() == status).count();
+        }
+
+        @Override
+        public void save(Quest quest) {
+            quests.put(quest.getId(), quest);
+            version.incrementAndGet();
+        }
+
+        @Override
+        public void saveAll(Collection<Quest> quests) {
+            quests.forEach(this::save);
+        }
+
+        @Override
+        public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+            Quest current = quests.get(id);
+            boolean replaced = current != null && current.getStatus() == expected
+                    && quests.replace(id, current, new Quest(id, current.getName(), next, current.getReward()));
+            if (replaced) {
+                version.incrementAndGet();
+            }
+            return replaced;
+        }
+
+        @Override
+        public long maxId() {
+            return quests.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+
+        @Override
+        public long version() {
+            return version.get();
+        }
+    }
+}
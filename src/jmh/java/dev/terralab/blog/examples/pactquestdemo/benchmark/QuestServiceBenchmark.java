@@ -0,0 +1,74 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestServiceFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuestServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int quests;
+
+    private QuestService questService;
+    private ObjectMapper objectMapper;
+    private List<QuestResponseDto> mapped;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryQuestRepository repository = new InMemoryQuestRepository();
+        List<Quest> all = new ArrayList<>(quests);
+        for (long id = 1; id <= quests; id++) {
+            all.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], (id % 10) * 100 + " XP"));
+        }
+        repository.saveAll(all);
+        questService = QuestServiceFixtures.questService(repository);
+        objectMapper = new ObjectMapper();
+        mapped = List.copyOf(questService.getQuests());
+    }
+
+    @Benchmark
+    public List<QuestResponseDto> getQuests() {
+        return List.copyOf(questService.getQuests());
+    }
+
+    @Benchmark
+    public byte[] serializeQuests() throws Exception {
+        return objectMapper.writeValueAsBytes(mapped);
+    }
+
+    @Benchmark
+    public byte[] getAndSerializeQuests() throws Exception {
+        return objectMapper.writeValueAsBytes(questService.getQuests());
+    }
+
+    @Benchmark
+    public byte[] getQuestsJson() {
+        return questService.getQuestsJson();
+    }
+}
@@ -0,0 +1,98 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusTransitionException;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestServiceFixtures;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads moving quests through their lifecycle at once. Each call reads a random hot
+ * quest and asks the service for its next valid status; a completed quest is put back to
+ * NOT_STARTED with a repository compare-and-set, so the hot set keeps cycling for the whole
+ * run instead of completing in the first microseconds. With a small hot set most calls race
+ * on the same quests, and the {@code rejected} counter shows how many lost the race to a
+ * concurrent update of the same quest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class QuestUpdateContentionBenchmark {
+
+    private static final QuestUpdateRequestDto IN_PROGRESS = new QuestUpdateRequestDto("IN_PROGRESS");
+    private static final QuestUpdateRequestDto COMPLETED = new QuestUpdateRequestDto("COMPLETED");
+
+    @Param({"16", "100000"})
+    public int hotQuests;
+
+    private InMemoryQuestRepository repository;
+    private QuestService questService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryQuestRepository();
+        questService = QuestServiceFixtures.questService(repository);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetQuests() {
+        for (long id = 1; id <= hotQuests; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+    }
+
+    /**
+     * Per-thread outcome counts, reported by JMH next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long updated;
+        public long rejected;
+        public long restarted;
+    }
+
+    @Benchmark
+    public QuestResponseDto updateQuestStatus(Outcomes outcomes) {
+        long id = ThreadLocalRandom.current().nextLong(1, hotQuests + 1L);
+        Status status = repository.findById(id).orElseThrow().getStatus();
+        if (status == Status.COMPLETED) {
+            if (repository.compareAndSetStatus(id, Status.COMPLETED, Status.NOT_STARTED)) {
+                outcomes.restarted++;
+            }
+            return null;
+        }
+        try {
+            QuestResponseDto quest = questService.updateQuestStatus(id, status == Status.NOT_STARTED ? IN_PROGRESS : COMPLETED);
+            outcomes.updated++;
+            return quest;
+        } catch (InvalidStatusTransitionException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+}
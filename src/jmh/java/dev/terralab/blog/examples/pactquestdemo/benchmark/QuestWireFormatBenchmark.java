@@ -0,0 +1,91 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of the {@code GET /quest} body in each wire format: time for the server to encode a
+ * list of quests and for a client to decode it. The payload size of each format, raw and
+ * gzip-compressed, is printed once per trial. JSON is encoded by plain Jackson here, which is
+ * what the fragment cache falls back to when every quest has changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QuestWireFormatBenchmark {
+
+    @Param({"100000"})
+    public int quests;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private List<QuestResponseDto> all;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        all = new ArrayList<>(quests);
+        for (long id = 1; id <= quests; id++) {
+            Quest quest = new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], id % 10 == 0 ? null : (id % 10) * 100 + " XP");
+            all.add(QuestResponseDto.from(quest));
+        }
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        writer = mapper.writerFor(new TypeReference<List<QuestResponseDto>>() {
+        });
+        reader = mapper.readerFor(new TypeReference<List<QuestResponseDto>>() {
+        });
+        encoded = writer.writeValueAsBytes(all);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encoded);
+        }
+        System.out.printf("%n%s payload for %d quests: %d bytes, %d bytes gzipped%n", format, quests, encoded.length, compressed.size());
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(all);
+    }
+
+    @Benchmark
+    public List<QuestResponseDto> decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
@@ -0,0 +1,243 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.PactQuestDemoApplication;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestShardRing;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts clusters of 1, 2, 4, ... sharded application instances on localhost and drives a
+ * closed-loop {@code PUT /quest/{id}} load against them, reporting write throughput and its
+ * speedup over a single shard. Every write moves a quest one step along
+ * NOT_STARTED, IN_PROGRESS, COMPLETED, and each client works through its own ids, so all
+ * writes succeed. With {@code load.routing=random} writes are sent to a random node, which
+ * forwards those it does not own; {@code load.routing=owner} sends them to the owner directly.
+ * <p>
+ * All instances share this machine's cores, so the speedup only approaches the shard count
+ * when the machine has spare cores for the added nodes, or when per-node capacity is what
+ * limits throughput: {@code load.node-threads} caps each node's request threads and
+ * {@code load.io-latency-ms} makes every write block like a write to a node-local disk.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *   -Dbenchmark.main=dev.terralab.blog.examples.pactquestdemo.benchmark.ShardedWriteScalingBenchmark \
+ *   -Dbenchmark.args= -Dbenchmark.jvm.args="-Dload.shards=1,2,4 -Dload.node-threads=8 -Dload.io-latency-ms=2"
+ * </pre>
+ * or {@code make shard-benchmark SHARD_ARGS="-Dload.shards=1,2,4"}.
+ */
+public class ShardedWriteScalingBenchmark {
+
+    private static final int[] SHARDS = Arrays.stream(System.getProperty("load.shards", "1,2,4").split(","))
+            .mapToInt(shards -> Integer.parseInt(shards.trim()))
+            .toArray();
+    private static final int CLIENTS = Integer.getInteger("load.clients", 64);
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("load.duration", "15s"));
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+    private static final int QUESTS_PER_CLIENT = Integer.getInteger("load.quests-per-client", 10_000);
+    private static final boolean ROUTE_TO_OWNER = "owner".equals(System.getProperty("load.routing", "random"));
+    private static final int NODE_THREADS = Integer.getInteger("load.node-threads", 0);
+    private static final long IO_LATENCY_MILLIS = Long.getLong("load.io-latency-ms", 0);
+
+    public static void main(String[] args) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (int shards : SHARDS) {
+            results.add(run(shards));
+        }
+        double baseline = results.getFirst().throughput() / results.getFirst().shards();
+        System.out.printf("%n%-8s %12s %10s %10s %10s %8s%n", "shards", "writes/s", "speedup", "p50 ms", "p99 ms", "errors");
+        for (Result result : results) {
+            System.out.printf("%-8d %12.0f %10.2f %10.2f %10.2f %8d%n",
+                    result.shards(), result.throughput(), result.throughput() / baseline, result.p50(), result.p99(), result.errors());
+        }
+    }
+
+    private static Result run(int shards) throws Exception {
+        List<String> nodes = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 1; i <= shards; i++) {
+            nodes.add("node-" + i);
+            ports.add(freePort());
+        }
+        QuestShardRing ring = new QuestShardRing(nodes, 128);
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        try {
+            for (int i = 0; i < shards; i++) {
+                contexts.add(start(nodes, ports, ring, i));
+            }
+            seed(nodes, ring, contexts);
+
+            List<String> baseUrls = ports.stream().map(port -> "http://localhost:" + port).toList();
+            AtomicLong[] cursors = new AtomicLong[CLIENTS];
+            for (int client = 0; client < CLIENTS; client++) {
+                cursors[client] = new AtomicLong();
+            }
+            drive(baseUrls, nodes, ring, cursors, WARMUP, new LongAdder());
+
+            LongAdder errors = new LongAdder();
+            long[][] latencies = drive(baseUrls, nodes, ring, cursors, DURATION, errors);
+            long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).filter(latency -> latency > 0).sorted().toArray();
+            return new Result(shards,
+                    merged.length / (double) DURATION.toSeconds(),
+                    percentile(merged, 0.50),
+                    percentile(merged, 0.99),
+                    errors.sum());
+        } finally {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(List<String> nodes, List<Integer> ports, QuestShardRing ring, int index) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=" + ports.get(index),
+                "spring.datasource.url=jdbc:h2:mem:" + nodes.get(index),
+                "spring.jmx.enabled=false",
+                "quest.rate-limit.enabled=false",
+                "quest.sharding.enabled=true",
+                "quest.sharding.self=" + nodes.get(index),
+                "logging.level.root=WARN"));
+        if (NODE_THREADS > 0) {
+            properties.add("server.tomcat.threads.max=" + NODE_THREADS);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            properties.add("quest.sharding.nodes[" + i + "].name=" + nodes.get(i));
+            properties.add("quest.sharding.nodes[" + i + "].url=http://localhost:" + ports.get(i));
+        }
+        return new SpringApplicationBuilder(PactQuestDemoApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .initializers(context -> {
+                    if (IO_LATENCY_MILLIS > 0) {
+                        context.getBeanFactory().registerSingleton("simulatedIoLatency", simulatedIoLatency(ring, nodes.get(index)));
+                    }
+                })
+                .run();
+    }
+
+    /**
+     * Blocks writes to quests this node owns, so forwarded writes pay for the I/O on the owner
+     * only.
+     */
+    private static Filter simulatedIoLatency(QuestShardRing ring, String node) {
+        return (request, response, chain) -> {
+            String path = ((HttpServletRequest) request).getRequestURI();
+            if (path.startsWith("/quest/") && node.equals(ring.ownerOf(Long.parseLong(path.substring("/quest/".length()))))) {
+                try {
+                    Thread.sleep(IO_LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            chain.doFilter(request, response);
+        };
+    }
+
+    private static void seed(List<String> nodes, QuestShardRing ring, List<ConfigurableApplicationContext> contexts) {
+        Map<String, List<Quest>> owned = new HashMap<>();
+        for (long id = 1; id <= (long) CLIENTS * QUESTS_PER_CLIENT; id++) {
+            owned.computeIfAbsent(ring.ownerOf(id), node -> new ArrayList<>())
+                    .add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            contexts.get(i).getBean(QuestRepository.class).saveAll(owned.getOrDefault(nodes.get(i), List.of()));
+        }
+    }
+
+    private static long[][] drive(List<String> baseUrls, List<String> nodes, QuestShardRing ring, AtomicLong[] cursors,
+                                  Duration duration, LongAdder errors) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long[][] latencies = new long[CLIENTS][];
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                int index = client;
+                futures.add(clients.submit(() -> {
+                    latencies[index] = clientLoop(httpClient, baseUrls, nodes, ring, index, cursors[index], deadline, errors);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return latencies;
+    }
+
+    private static long[] clientLoop(HttpClient httpClient, List<String> baseUrls, List<String> nodes, QuestShardRing ring,
+                                     int client, AtomicLong cursor, long deadline, LongAdder errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            long step = cursor.getAndIncrement();
+            if (step >= 2L * QUESTS_PER_CLIENT) {
+                throw new IllegalStateException("Ran out of quests, raise load.quests-per-client");
+            }
+            long id = (long) client * QUESTS_PER_CLIENT + step / 2 + 1;
+            String baseUrl = ROUTE_TO_OWNER
+                    ? baseUrls.get(nodes.indexOf(ring.ownerOf(id)))
+                    : baseUrls.get(random.nextInt(baseUrls.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/quest/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(step % 2 == 0 ? "{\"status\":\"IN_PROGRESS\"}" : "{\"status\":\"COMPLETED\"}"))
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors.increment();
+                }
+            } catch (Exception e) {
+                errors.increment();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Result(int shards, double throughput, double p50, double p99, long errors) {
+    }
+}
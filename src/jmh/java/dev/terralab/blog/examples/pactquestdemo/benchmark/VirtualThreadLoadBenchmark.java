@@ -0,0 +1,228 @@
+package dev.terralab.blog.examples.pactquestdemo.benchmark;
+
+import dev.terralab.blog.examples.pactquestdemo.PactQuestDemoApplication;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import jakarta.servlet.Filter;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Drives a closed-loop GET/PUT mix against the application once with Tomcat's platform
+ * thread pool and once with virtual threads, and reports throughput, latency percentiles
+ * and the number of {@code jdk.VirtualThreadPinned} events seen while serving requests.
+ * <p>
+ * Every request can be made to block for {@code load.io-latency-ms} to stand in for
+ * repository or downstream I/O. Setting {@code load.pinning-probe=true} performs that wait
+ * inside a {@code synchronized} block, which must show up as pinning.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *   -Dbenchmark.main=dev.terralab.blog.examples.pactquestdemo.benchmark.VirtualThreadLoadBenchmark \
+ *   -Dbenchmark.args= -Dbenchmark.jvm.args="-Dload.clients=1000 -Dload.duration=20s"
+ * </pre>
+ * or {@code make load-benchmark LOAD_ARGS="-Dload.clients=1000"}.
+ */
+public class VirtualThreadLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 512);
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("load.duration", "15s"));
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+    private static final int QUESTS = Integer.getInteger("load.quests", 100_000);
+    private static final double PUT_RATIO = Double.parseDouble(System.getProperty("load.put-ratio", "0.2"));
+    private static final long IO_LATENCY_MILLIS = Long.getLong("load.io-latency-ms", 5);
+    private static final boolean PINNING_PROBE = Boolean.getBoolean("load.pinning-probe");
+
+    public static void main(String[] args) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            results.add(run(virtual));
+        }
+        System.out.printf("%n%-10s %12s %10s %10s %10s %8s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "pinned");
+        for (Result result : results) {
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d %8d%n",
+                    result.mode(), result.throughput(), result.p50(), result.p99(), result.max(), result.errors(), result.pinnedEvents());
+        }
+        results.stream()
+                .flatMap(result -> result.pinnedFrames().entrySet().stream())
+                .forEach(entry -> System.out.println("pinned at " + entry.getKey() + " (" + entry.getValue() + "x)"));
+    }
+
+    private static Result run(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PactQuestDemoApplication.class, BlockingIoSimulation.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "quest.rate-limit.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+             RecordingStream pinning = new RecordingStream()) {
+
+            QuestRepository repository = context.getBean(QuestRepository.class);
+            List<Quest> quests = new ArrayList<>(QUESTS);
+            for (long id = 1; id <= QUESTS; id++) {
+                quests.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+            }
+            repository.saveAll(quests);
+
+            LongAdder pinnedEvents = new LongAdder();
+            Map<String, Long> pinnedFrames = new ConcurrentHashMap<>();
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinnedEvents.increment();
+                pinnedFrames.merge(topApplicationFrame(event), 1L, Long::sum);
+            });
+            pinning.startAsync();
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            drive(baseUrl, WARMUP, new LongAdder());
+            pinnedEvents.reset();
+            pinnedFrames.clear();
+
+            LongAdder errors = new LongAdder();
+            long[][] latencies = drive(baseUrl, DURATION, errors);
+            long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).filter(latency -> latency > 0).sorted().toArray();
+            return new Result(mode,
+                    merged.length / (double) DURATION.toSeconds(),
+                    percentile(merged, 0.50),
+                    percentile(merged, 0.99),
+                    percentile(merged, 1.0),
+                    errors.sum(),
+                    pinnedEvents.sum(),
+                    Map.copyOf(pinnedFrames));
+        }
+    }
+
+    private static long[][] drive(String baseUrl, Duration duration, LongAdder errors) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long[][] latencies = new long[CLIENTS][];
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                int index = client;
+                futures.add(clients.submit(() -> {
+                    latencies[index] = clientLoop(httpClient, baseUrl, deadline, errors);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return latencies;
+    }
+
+    private static long[] clientLoop(HttpClient httpClient, String baseUrl, long deadline, LongAdder errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            long id = random.nextLong(1, QUESTS + 1L);
+            HttpRequest request = random.nextDouble() < PUT_RATIO
+                    ? HttpRequest.newBuilder(URI.create(baseUrl + "/quest/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(random.nextBoolean() ? "{\"status\":\"IN_PROGRESS\"}" : "{\"status\":\"COMPLETED\"}"))
+                    .build()
+                    : HttpRequest.newBuilder(URI.create(baseUrl + "/quest/" + id)).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 500) {
+                    errors.increment();
+                }
+            } catch (Exception e) {
+                errors.increment();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static String topApplicationFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .filter(frame -> frame.startsWith("dev.terralab"))
+                .findFirst()
+                .orElseGet(() -> event.getStackTrace().getFrames().stream()
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                        .limit(3)
+                        .collect(Collectors.joining(" <- ")));
+    }
+
+    private record Result(String mode, double throughput, double p50, double p99, double max, long errors,
+                          long pinnedEvents, Map<String, Long> pinnedFrames) {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class BlockingIoSimulation {
+
+        @Bean
+        Filter simulatedIoLatency() {
+            return (request, response, chain) -> {
+                if (IO_LATENCY_MILLIS > 0) {
+                    if (PINNING_PROBE) {
+                        synchronized (request) {
+                            sleep();
+                        }
+                    } else {
+                        sleep();
+                    }
+                }
+                chain.doFilter(request, response);
+            };
+        }
+
+        private static void sleep() {
+            try {
+                Thread.sleep(IO_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
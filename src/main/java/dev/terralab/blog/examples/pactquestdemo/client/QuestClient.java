@@ -0,0 +1,282 @@
+package dev.terralab.blog.examples.pactquestdemo.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateResultDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous client for the Quest API. All requests share one {@link HttpClient}, and so its
+ * connection pool. Responses are decoded straight from the body stream by an
+ * {@link ObjectReader} prepared once per type.
+ * <p>
+ * {@link #updateQuestStatus(long, String)} sends an update right away while no other update
+ * request is in flight, so a caller that waits for each result pays no batching delay. Updates
+ * made while one is in flight are held and sent together as one {@code PATCH /quest} once it
+ * completes, {@code batchWindow} after the first of them at the latest, or as soon as
+ * {@code maxBatchSize} are pending; each update's future completes with its own result from
+ * the batch. A batch holding a single update is sent as a plain {@code PUT /quest/{id}}.
+ * <p>
+ * Batching only pays off when callers keep several updates in flight. Over one connection, a
+ * caller that waits for every response gets no more requests through than a blocking client,
+ * and reads are slightly slower for the asynchronous hand-off.
+ * <p>
+ * Failed requests complete their future with a {@link QuestClientException}, and so does
+ * every update of a batch whose response does not hold one result per update.
+ */
+public class QuestClient implements AutoCloseable {
+
+    public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final HttpClient httpClient;
+    private final URI questUri;
+    private final String questPath;
+    private final long batchWindow;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final ObjectReader questReader;
+    private final ObjectReader questListReader;
+    private final ObjectReader batchResultReader;
+    private final ObjectReader errorReader;
+    private final ObjectWriter updateWriter;
+    private final ObjectWriter batchWriter;
+
+    private final Object lock = new Object();
+    private List<PendingUpdate> pending = new ArrayList<>();
+    private int inFlight;
+    private boolean closed;
+
+    public QuestClient(URI baseUrl) {
+        this(baseUrl, HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build(), new ObjectMapper(),
+                DEFAULT_BATCH_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public QuestClient(URI baseUrl, HttpClient httpClient, ObjectMapper objectMapper, Duration batchWindow, int maxBatchSize) {
+        this.httpClient = httpClient;
+        this.questUri = baseUrl.resolve("/quest");
+        this.questPath = questUri + "/";
+        this.batchWindow = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("quest-client-batcher").daemon().factory());
+
+        ObjectMapper mapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.questReader = mapper.readerFor(QuestResponseDto.class);
+        this.questListReader = mapper.readerFor(new TypeReference<List<QuestResponseDto>>() {
+        });
+        this.batchResultReader = mapper.readerFor(new TypeReference<List<QuestBatchUpdateResultDto>>() {
+        });
+        this.errorReader = mapper.readerFor(ErrorResponseDto.class);
+        this.updateWriter = mapper.writerFor(QuestUpdateRequestDto.class);
+        this.batchWriter = mapper.writerFor(new TypeReference<List<QuestBatchUpdateRequestDto>>() {
+        });
+    }
+
+    public CompletableFuture<List<QuestResponseDto>> getQuests() {
+        return send(HttpRequest.newBuilder(questUri).GET(), questListReader);
+    }
+
+    public CompletableFuture<QuestResponseDto> getQuest(long id) {
+        return send(HttpRequest.newBuilder(URI.create(questPath + id)).GET(), questReader);
+    }
+
+    public CompletableFuture<QuestResponseDto> updateQuestStatus(long id, String status) {
+        PendingUpdate update = new PendingUpdate(new QuestBatchUpdateRequestDto(id, status), new CompletableFuture<>());
+        List<PendingUpdate> ready = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Client is closed");
+            }
+            pending.add(update);
+            if (inFlight == 0 || pending.size() >= maxBatchSize) {
+                ready = takePending();
+            } else if (pending.size() == 1) {
+                scheduler.schedule(this::flush, batchWindow, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+        return update.result();
+    }
+
+    /**
+     * Sends the pending updates and stops batching; requests already sent still complete.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private void flush() {
+        List<PendingUpdate> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private List<PendingUpdate> takePending() {
+        List<PendingUpdate> batch = pending;
+        pending = new ArrayList<>();
+        inFlight++;
+        return batch;
+    }
+
+    /**
+     * Called once a batch has been answered; sends the updates that piled up meanwhile if no
+     * other request is still in flight.
+     */
+    private void answered() {
+        List<PendingUpdate> batch = null;
+        synchronized (lock) {
+            inFlight--;
+            if (inFlight == 0 && !pending.isEmpty()) {
+                batch = takePending();
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    private void send(List<PendingUpdate> batch) {
+        try {
+            if (batch.size() == 1) {
+                QuestBatchUpdateRequestDto update = batch.getFirst().request();
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(questPath + update.id()))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(updateWriter.writeValueAsBytes(new QuestUpdateRequestDto(update.status()))));
+                this.<QuestResponseDto>send(request, questReader).whenComplete((quest, failure) -> {
+                    complete(batch.getFirst(), quest, failure);
+                    answered();
+                });
+                return;
+            }
+            List<QuestBatchUpdateRequestDto> requests = new ArrayList<>(batch.size());
+            for (PendingUpdate update : batch) {
+                requests.add(update.request());
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(questUri)
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(batchWriter.writeValueAsBytes(requests)));
+            CompletableFuture<List<QuestBatchUpdateResultDto>> results = send(request, batchResultReader);
+            results.whenComplete((answers, failure) -> {
+                complete(batch, answers, failure);
+                answered();
+            });
+        } catch (IOException | RuntimeException e) {
+            for (PendingUpdate update : batch) {
+                update.result().completeExceptionally(new QuestClientException(e));
+            }
+            answered();
+        }
+    }
+
+    private static void complete(List<PendingUpdate> batch, List<QuestBatchUpdateResultDto> answers, Throwable failure) {
+        if (failure == null && (answers == null || answers.size() != batch.size())) {
+            failure = new QuestClientException(200, new ErrorResponseDto("UNEXPECTED_RESPONSE",
+                    "Batch response holds " + (answers == null ? 0 : answers.size()) + " results for " + batch.size() + " updates"));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<QuestResponseDto> result = batch.get(i).result();
+            if (failure != null) {
+                result.completeExceptionally(unwrap(failure));
+                continue;
+            }
+            QuestBatchUpdateResultDto answer = answers.get(i);
+            if (answer != null && answer.success()) {
+                result.complete(answer.quest());
+            } else if (answer != null && answer.error() != null) {
+                result.completeExceptionally(new QuestClientException(statusOf(answer.error().code()), answer.error()));
+            } else {
+                result.completeExceptionally(new QuestClientException(200,
+                        new ErrorResponseDto("UNEXPECTED_RESPONSE", "Batch result " + i + " holds neither a quest nor an error")));
+            }
+        }
+    }
+
+    private static void complete(PendingUpdate update, QuestResponseDto quest, Throwable failure) {
+        if (failure != null) {
+            update.result().completeExceptionally(unwrap(failure));
+        } else {
+            update.result().complete(quest);
+        }
+    }
+
+    private <T> CompletableFuture<T> send(HttpRequest.Builder request, ObjectReader reader) {
+        HttpRequest built = request.header("Accept", "application/json").build();
+        return httpClient.sendAsync(built, responseInfo -> HttpResponse.BodySubscribers.mapping(
+                        HttpResponse.BodySubscribers.ofInputStream(),
+                        body -> (Supplier<T>) () -> decode(responseInfo.statusCode(), body, reader)))
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        throw new QuestClientException(unwrap(failure));
+                    }
+                    try {
+                        return response.body().get();
+                    } catch (UncheckedIOException e) {
+                        throw new QuestClientException(e.getCause());
+                    }
+                });
+    }
+
+    private <T> T decode(int status, InputStream body, ObjectReader reader) {
+        try (body) {
+            if (status / 100 == 2) {
+                return reader.readValue(body);
+            }
+            ErrorResponseDto error;
+            try {
+                error = errorReader.readValue(body);
+            } catch (IOException e) {
+                error = new ErrorResponseDto("UNEXPECTED_RESPONSE", "Unreadable error response with status " + status);
+            }
+            throw new QuestClientException(status, error);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static int statusOf(String code) {
+        return "NOT_FOUND".equals(code) ? 404 : 400;
+    }
+
+    private record PendingUpdate(QuestBatchUpdateRequestDto request, CompletableFuture<QuestResponseDto> result) {
+    }
+}
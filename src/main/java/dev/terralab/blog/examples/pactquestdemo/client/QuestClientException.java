@@ -0,0 +1,28 @@
+package dev.terralab.blog.examples.pactquestdemo.client;
+
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import lombok.Getter;
+
+/**
+ * A request the Quest API answered with an error, or that got no answer at all, in which case
+ * the status is 0 and the code {@code CLIENT_ERROR}. For an update that failed inside a batch,
+ * the status is the one the API returns for that error code on a single update.
+ */
+@Getter
+public class QuestClientException extends RuntimeException {
+
+    private final int status;
+    private final String code;
+
+    public QuestClientException(int status, ErrorResponseDto error) {
+        super(error.message());
+        this.status = status;
+        this.code = error.code();
+    }
+
+    public QuestClientException(Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.status = 0;
+        this.code = "CLIENT_ERROR";
+    }
+}
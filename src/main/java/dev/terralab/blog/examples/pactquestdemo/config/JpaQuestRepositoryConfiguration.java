@@ -0,0 +1,51 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestEntity;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Hibernate settings for {@code quest.repository.type=jpa}: ordered JDBC batching for
+ * writes and a bounded second-level cache region for
+ * {@link QuestEntity}, backed by a cache manager owned by this context.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "quest.repository", name = "type", havingValue = "jpa")
+public class JpaQuestRepositoryConfiguration {
+
+    @Bean(destroyMethod = "close")
+    CacheManager questCacheManager(JpaRepositoryProperties properties) {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("urn:quest-cache:" + UUID.randomUUID()), ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(QuestEntity.CACHE_REGION, CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        Object.class, Object.class, ResourcePoolsBuilder.heap(properties.cachedQuests())))
+                .build());
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer questHibernateProperties(JpaRepositoryProperties properties, CacheManager questCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.STATEMENT_BATCH_SIZE, properties.batchSize());
+            hibernateProperties.put(AvailableSettings.ORDER_INSERTS, true);
+            hibernateProperties.put(AvailableSettings.ORDER_UPDATES, true);
+            hibernateProperties.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, questCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create");
+        };
+    }
+}
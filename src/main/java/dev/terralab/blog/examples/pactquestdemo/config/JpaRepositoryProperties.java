@@ -0,0 +1,11 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "quest.repository.jpa")
+public record JpaRepositoryProperties(
+        @DefaultValue("50") int batchSize,
+        @DefaultValue("500") int fetchSize,
+        @DefaultValue("10000") long cachedQuests) {
+}
@@ -0,0 +1,35 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "quest.repository.mapped-log")
+public record MappedLogRepositoryProperties(
+        @DefaultValue("data") Path directory,
+        @DefaultValue("256MB") DataSize logSize,
+        @DefaultValue("ALWAYS") FsyncPolicy fsync,
+        @DefaultValue("100ms") Duration fsyncInterval,
+        @DefaultValue("1m") Duration compactionInterval,
+        @DefaultValue("0.5") double compactionThreshold) {
+
+    public enum FsyncPolicy {
+        /**
+         * Every write waits until it is on disk. Writers arriving while a sync is in flight
+         * are covered together by the next one.
+         */
+        ALWAYS,
+        /**
+         * Writes return once they are in the mapped log; the log is synced every
+         * {@code fsync-interval}.
+         */
+        INTERVAL,
+        /**
+         * The log is only synced on compaction and shutdown.
+         */
+        NEVER
+    }
+}
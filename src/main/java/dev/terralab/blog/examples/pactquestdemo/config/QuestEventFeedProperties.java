@@ -0,0 +1,14 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "quest.events")
+public record QuestEventFeedProperties(
+        @DefaultValue("8192") int bufferSize,
+        @DefaultValue("1024") int maxLag,
+        @DefaultValue("30m") Duration timeout,
+        @DefaultValue("10s") Duration sendTimeout) {
+}
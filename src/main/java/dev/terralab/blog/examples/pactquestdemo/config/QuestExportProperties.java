@@ -0,0 +1,19 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * An {@code interval} of 0 only builds exports on request. {@code max-quests-per-second} 0
+ * does not throttle the export.
+ */
+@ConfigurationProperties(prefix = "quest.export")
+public record QuestExportProperties(
+        @DefaultValue("exports") Path directory,
+        @DefaultValue("0s") Duration interval,
+        @DefaultValue("2") int retain,
+        @DefaultValue("0") int maxQuestsPerSecond) {
+}
@@ -0,0 +1,16 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code max-errors} caps the row errors listed in an import report; all of them are counted.
+ * {@code max-line-length} caps the characters read into one row, so a body without line breaks
+ * cannot be buffered whole; longer rows are skipped and reported.
+ */
+@ConfigurationProperties(prefix = "quest.import")
+public record QuestImportProperties(
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("100") int maxErrors,
+        @DefaultValue("65536") int maxLineLength) {
+}
@@ -0,0 +1,68 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-client limits keyed by endpoint, where the endpoint is the kebab-case name of the
+ * {@code QuestController} method (for example {@code put-quest} or {@code get-quests}).
+ * {@code buckets} charges an endpoint to another one's bucket, so variants of the same read,
+ * such as the streamed and paged quest lists, cannot be used to get around its limit. Endpoints
+ * with neither an entry nor a bucket get {@code default-limit}, in a bucket of their own. Without
+ * {@code buckets} set, every {@code GET /quest} variant is charged to {@code get-quests}.
+ * <p>
+ * Clients are identified by their remote address. {@code client-header} is only believed on
+ * requests from one of the {@code trusted-proxies}, such as a load balancer or, in sharded
+ * mode, the other nodes, which pass the original client on in it; otherwise any client could
+ * get a fresh bucket by changing the header. No more than {@code max-clients} clients are
+ * tracked per endpoint.
+ * <p>
+ * {@code concurrency.latency-thresholds} overrides {@code latency-threshold} per endpoint, for
+ * endpoints that are slow by nature, such as bulk imports and downloads, whose latency says
+ * nothing about overload.
+ */
+@ConfigurationProperties(prefix = "quest.rate-limit")
+public record QuestRateLimitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("X-Client-Id") String clientHeader,
+        List<String> trustedProxies,
+        @DefaultValue("100000") int maxClients,
+        Map<String, Limit> endpoints,
+        Map<String, String> buckets,
+        Limit defaultLimit,
+        @DefaultValue Concurrency concurrency) {
+
+    private static final Map<String, String> LIST_BUCKETS = Map.of(
+            "get-quests-by-status", "get-quests",
+            "get-quest-page", "get-quests",
+            "get-quest-page-without-limit", "get-quests",
+            "stream-quests", "get-quests");
+
+    public QuestRateLimitProperties {
+        endpoints = endpoints == null ? Map.of() : Map.copyOf(endpoints);
+        buckets = buckets == null ? LIST_BUCKETS : Map.copyOf(buckets);
+        defaultLimit = defaultLimit == null ? new Limit(20, 40) : defaultLimit;
+        trustedProxies = trustedProxies == null ? List.of() : List.copyOf(trustedProxies);
+    }
+
+    public record Limit(double permitsPerSecond, @DefaultValue("1") int burst) {
+    }
+
+    public record Concurrency(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("64") int initialLimit,
+            @DefaultValue("8") int minLimit,
+            @DefaultValue("512") int maxLimit,
+            @DefaultValue("250ms") Duration latencyThreshold,
+            Map<String, Duration> latencyThresholds,
+            @DefaultValue("0.9") double backoffRatio) {
+
+        public Concurrency {
+            latencyThresholds = latencyThresholds == null ? Map.of() : Map.copyOf(latencyThresholds);
+        }
+    }
+}
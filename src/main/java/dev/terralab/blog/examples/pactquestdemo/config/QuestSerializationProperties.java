@@ -0,0 +1,22 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * {@code parallelism} 0 uses one thread per available processor, and 1 serializes every list
+ * on the request thread. {@code max-cache-size} bounds the JSON fragments kept for listed
+ * quests.
+ */
+@ConfigurationProperties(prefix = "quest.serialization")
+public record QuestSerializationProperties(
+        @DefaultValue("0") int parallelism,
+        @DefaultValue("20000") int parallelThreshold,
+        @DefaultValue("4096") int chunkSize,
+        @DefaultValue("64MB") DataSize maxCacheSize) {
+
+    public int effectiveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,28 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Static cluster membership. Every node must be configured with the same list of nodes, and
+ * {@code self} names the entry describing this node.
+ */
+@ConfigurationProperties(prefix = "quest.sharding")
+public record QuestShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        String self,
+        List<Node> nodes,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("2s") Duration timeout) {
+
+    public QuestShardingProperties {
+        nodes = nodes == null ? List.of() : List.copyOf(nodes);
+    }
+
+    public record Node(String name, URI url) {
+    }
+}
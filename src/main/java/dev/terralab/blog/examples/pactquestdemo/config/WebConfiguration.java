@@ -0,0 +1,54 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.terralab.blog.examples.pactquestdemo.controller.QuestRateLimitInterceptor;
+import dev.terralab.blog.examples.pactquestdemo.controller.QuestShardRoutingFilter;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final QuestRateLimitInterceptor rateLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/quest", "/quest/**");
+    }
+
+    /**
+     * Built from the same builder as the JSON {@link ObjectMapper}, so CBOR and Smile documents
+     * have the same fields as the JSON ones.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "quest.sharding", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<QuestShardRoutingFilter> questShardRoutingFilter(QuestShardingProperties sharding,
+                                                                                  ObjectMapper objectMapper,
+                                                                                  QuestMetrics metrics) {
+        var registration = new FilterRegistrationBean<>(new QuestShardRoutingFilter(sharding, rateLimitInterceptor, objectMapper, metrics));
+        registration.addUrlPatterns("/quest", "/quest/*");
+        return registration;
+    }
+}
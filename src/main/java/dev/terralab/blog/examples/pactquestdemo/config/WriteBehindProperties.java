@@ -0,0 +1,36 @@
+package dev.terralab.blog.examples.pactquestdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "quest.repository.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("ASYNC") Durability durability,
+        @DefaultValue("100ms") Duration flushInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("10000") int maxPending,
+        @DefaultValue("5s") Duration maxWait,
+        @DefaultValue("5") int maxRetries,
+        @DefaultValue("30s") Duration shutdownTimeout) {
+
+    public enum Durability {
+        /**
+         * Writes return once they are applied in memory. Whatever has not been flushed when
+         * the process dies is lost: at most {@code max-pending} quests, usually what changed
+         * in the last {@code flush-interval}.
+         */
+        ASYNC,
+        /**
+         * Writes return once the batch holding them has been written to the backing
+         * repository. Concurrent writes still share a batch, and repeated updates to one
+         * quest are still coalesced. A write that is not confirmed within {@code max-wait},
+         * or whose quest is parked after {@code max-retries} failed flushes, fails with a 503
+         * although it has been applied in memory and is served by reads; the caller should
+         * read the quest back before retrying.
+         */
+        FLUSHED
+    }
+}
@@ -0,0 +1,94 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per client, kept as the generic cell rate algorithm: each client has a single
+ * theoretical arrival time, and taking a permit is one compare-and-set on it.
+ * <p>
+ * At most {@code maxClients} clients are tracked. When the table is full, clients whose
+ * arrival time has passed, and so have a full bucket, are dropped, but at most once a second,
+ * so a flood of new clients does not turn every request into a scan of the table. New clients
+ * that still find no room share one overflow bucket, so changing identity on every request
+ * neither grows the table nor escapes the limit.
+ */
+final class ClientRateLimiter {
+
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long LONG_AGO = Long.MIN_VALUE / 2;
+
+    private final long interval;
+    private final long tolerance;
+    private final int maxClients;
+    private final Map<String, AtomicLong> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final AtomicLong overflow = new AtomicLong(LONG_AGO);
+    private final AtomicLong nextSweep = new AtomicLong(LONG_AGO);
+
+    ClientRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limits need a positive rate and a burst of at least 1");
+        }
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.tolerance = interval * (burst - 1);
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Takes a permit for the client and returns 0, or returns the nanoseconds until one will
+     * be available without taking it.
+     */
+    long tryAcquire(String client, long now) {
+        AtomicLong arrival = clients.get(client);
+        if (arrival == null) {
+            arrival = track(client, now);
+        }
+        while (true) {
+            long current = arrival.get();
+            long start = Math.max(current, now);
+            long wait = start - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    int clients() {
+        return tracked.get();
+    }
+
+    private AtomicLong track(String client, long now) {
+        if (tracked.get() >= maxClients) {
+            sweep(now);
+        }
+        AtomicLong arrival = clients.computeIfAbsent(client, key -> {
+            if (tracked.incrementAndGet() > maxClients) {
+                tracked.decrementAndGet();
+                return null;
+            }
+            return new AtomicLong(now);
+        });
+        return arrival != null ? arrival : overflow;
+    }
+
+    private void sweep(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL)) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, AtomicLong>> entries = clients.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<String, AtomicLong> entry = entries.next();
+            if (entry.getValue().get() - now <= 0 && clients.remove(entry.getKey(), entry.getValue())) {
+                tracked.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of requests in flight with a limit that adapts by additive increase and
+ * multiplicative decrease: a request slower than its endpoint's latency threshold shrinks the
+ * limit by the backoff ratio, while fast requests made with at least half the limit in use grow
+ * it by one per limit's worth of requests. Requests over the limit are rejected straight away.
+ */
+final class ConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.clamp(initialLimit, minLimit, maxLimit)));
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, long latencyThresholdNanos) {
+        int inUse = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            limitBits.getAndUpdate(bits -> Double.doubleToLongBits(Math.max(minLimit, Double.longBitsToDouble(bits) * backoffRatio)));
+        } else if (inUse * 2 >= limit()) {
+            limitBits.getAndUpdate(bits -> {
+                double limit = Double.longBitsToDouble(bits);
+                return Double.doubleToLongBits(Math.min(maxLimit, limit + 1 / limit));
+            });
+        }
+    }
+
+    double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -1,31 +1,208 @@
 package dev.terralab.blog.examples.pactquestdemo.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateResultDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestCountResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestCreateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportReportDto;
 import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
 import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidRequestException;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestEventFeed;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestImporter;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestResponseCache;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestResponseCache.CachedResponse;
 import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService.QuestListEncoder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 public class QuestController {
 
+    private static final String ALL_QUESTS = "quests";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final QuestService questService;
+    private final QuestResponseCache responseCache;
+    private final QuestEventFeed questEventFeed;
+    private final QuestImporter questImporter;
+    private final ObjectMapper objectMapper;
+    private final MappingJackson2CborHttpMessageConverter cborConverter;
+    private final MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @GetMapping(path = "/quest", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
+    public ResponseEntity<byte[]> getQuests(WebRequest request) throws IOException {
+        QuestWireFormat format = QuestWireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        String etag = format.eTag(questService.getQuestsETag());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        CachedResponse quests = format == QuestWireFormat.JSON
+                ? responseCache.get(ALL_QUESTS, etag, questService::getQuestsJson)
+                : responseCache.get(ALL_QUESTS + ";" + format, etag, () -> questService.getQuests(encoderFor(format)));
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .eTag(quests.etag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(quests.body());
+    }
+
+    @GetMapping(path = "/quest", params = "status", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
+    public ResponseEntity<byte[]> getQuestsByStatus(@RequestParam List<String> status, WebRequest request) throws IOException {
+        Set<Status> statuses = questService.parseStatuses(status);
+        QuestWireFormat format = QuestWireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        String etag = format.eTag(questService.getQuestsETag());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        CachedResponse quests = format == QuestWireFormat.JSON
+                ? responseCache.get(ALL_QUESTS + "?status=" + statuses, etag, () -> questService.getQuestsJson(statuses))
+                : responseCache.get(ALL_QUESTS + "?status=" + statuses + ";" + format, etag,
+                () -> questService.getQuests(statuses, encoderFor(format)));
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .eTag(quests.etag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(quests.body());
+    }
+
+    @GetMapping(path = "/quest/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QuestCountResponseDto> countQuests(@RequestParam(required = false) List<String> status) {
+        Set<Status> statuses = questService.parseStatuses(status == null ? List.of() : status);
+        return ResponseEntity.ok(new QuestCountResponseDto(questService.countQuests(statuses)));
+    }
+
+    @GetMapping(path = "/quest", params = {"limit", "!status", "!stream"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
+    public ResponseEntity<List<QuestResponseDto>> getQuestPage(@RequestParam(required = false) Long after, @RequestParam int limit) {
+        List<QuestResponseDto> quests = questService.getQuests(after, limit);
+        if (quests.size() < limit) {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(quests);
+        }
+        String next = "</quest?after=" + quests.getLast().id() + "&limit=" + limit + ">; rel=\"next\"";
+        return ResponseEntity.ok().header(HttpHeaders.LINK, next).varyBy(HttpHeaders.ACCEPT).body(quests);
+    }
+
+    @GetMapping(path = "/quest", params = {"after", "!limit"})
+    public ResponseEntity<List<QuestResponseDto>> getQuestPageWithoutLimit() {
+        throw new InvalidRequestException("Parameter after is only supported together with limit");
+    }
+
+    @GetMapping(path = "/quest", params = {"stream=true", "!status", "!after"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamQuests() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream);
+                 Stream<QuestResponseDto> quests = questService.streamQuests()) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                for (Iterator<QuestResponseDto> iterator = quests.iterator(); iterator.hasNext(); ) {
+                    generator.writeObject(iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-    @GetMapping(path = "/quest", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<QuestResponseDto>> getQuests() {
-        List<QuestResponseDto> quests = questService.getQuests();
-        return ResponseEntity.ok(quests);
+    @GetMapping(path = "/quest/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQuestEvents(@RequestParam(required = false) Long since,
+                                        @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return questEventFeed.subscribe(lastEventId != null ? lastEventId : since);
     }
 
-    @PutMapping(path = "/quest/{id}", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(path = "/quest/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
+    public ResponseEntity<QuestResponseDto> getQuest(@PathVariable Long id, WebRequest request) {
+        QuestResponseDto quest = questService.getQuest(id);
+        String etag = QuestWireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT)).eTag(eTagOf(quest));
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(quest);
+    }
+
+    @PutMapping(path = "/quest/{id}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
     public ResponseEntity<QuestResponseDto> putQuest(@PathVariable Long id, @RequestBody QuestUpdateRequestDto requestDto) {
         QuestResponseDto questResponseDto = questService.updateQuestStatus(id, requestDto);
         return ResponseEntity.ok(questResponseDto);
     }
 
+    @PatchMapping(path = "/quest",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuestWireFormat.SMILE_VALUE})
+    public ResponseEntity<List<QuestBatchUpdateResultDto>> patchQuests(@RequestBody List<QuestBatchUpdateRequestDto> requestDto) {
+        List<QuestBatchUpdateResultDto> results = questService.updateQuestStatuses(requestDto);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping(path = "/quest", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QuestResponseDto> createQuest(@RequestBody QuestCreateRequestDto requestDto) {
+        QuestResponseDto quest = questService.createQuest(requestDto);
+        return ResponseEntity.created(URI.create("/quest/" + quest.id())).body(quest);
+    }
+
+    @PostMapping(path = "/quest/import", produces = MediaType.APPLICATION_JSON_VALUE,
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<QuestImportReportDto> importQuests(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                             InputStream body) throws IOException {
+        QuestImporter.Format format = TEXT_CSV.isCompatibleWith(contentType) ? QuestImporter.Format.CSV : QuestImporter.Format.NDJSON;
+        return ResponseEntity.ok(questImporter.importQuests(body, format));
+    }
+
+    private QuestListEncoder encoderFor(QuestWireFormat format) {
+        ObjectMapper mapper = format == QuestWireFormat.CBOR ? cborConverter.getObjectMapper() : smileConverter.getObjectMapper();
+        return mapper::writeValueAsBytes;
+    }
+
+    /**
+     * A strong ETag from a SHA-256 digest of every field of the quest, each length-prefixed so
+     * that no two different quests feed the digest the same bytes.
+     */
+    private static String eTagOf(QuestResponseDto quest) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : new String[]{quest.status(), quest.name(), quest.reward()}) {
+                if (field == null) {
+                    digest.update((byte) 0);
+                } else {
+                    byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                    digest.update((byte) 1);
+                    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                    digest.update(bytes);
+                }
+            }
+            return "\"" + Long.toHexString(quest.id()) + "-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 }
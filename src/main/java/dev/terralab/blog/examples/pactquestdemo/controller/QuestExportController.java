@@ -0,0 +1,120 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestExportDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.ExportNotAvailableException;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestExporter;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestExporter.Export;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Starts quest exports and serves the latest completed one. Downloads support a single byte
+ * range, so an interrupted download can resume with {@code Range} and {@code If-Range}; other
+ * range requests get the whole file. When the servlet container supports it the file is handed
+ * to the container's sendfile, which copies it to the socket without passing through the
+ * heap, and otherwise it is copied with {@link FileChannel#transferTo}.
+ */
+@RestController
+@RequiredArgsConstructor
+public class QuestExportController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String GZIP = "application/gzip";
+
+    private final QuestExporter questExporter;
+
+    @PostMapping(path = "/quest/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QuestExportDto> startExport() {
+        Export export = questExporter.start();
+        return ResponseEntity.accepted().header(HttpHeaders.LOCATION, "/quest/export").body(QuestExportDto.from(export));
+    }
+
+    @GetMapping(path = "/quest/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QuestExportDto> getExport() {
+        Export export = questExporter.latest().orElseThrow(() -> new ExportNotAvailableException("No export has been started"));
+        return ResponseEntity.ok(QuestExportDto.from(export));
+    }
+
+    @GetMapping(path = "/quest/export/download")
+    public void downloadExport(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Export export = questExporter.latestCompleted().orElseThrow(() -> new ExportNotAvailableException("No export has completed"));
+        long length = export.bytes();
+        String etag = "\"" + export.id() + "\"";
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                HttpRange requested = ranges.getFirst();
+                try {
+                    start = requested.getRangeStart(length);
+                    end = requested.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentType(GZIP);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(export.file().getFileName().toString()).build().toString());
+        response.setContentLengthLong(end - start + 1);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || end < start) {
+            return;
+        }
+        send(export.file(), start, end + 1, request, response);
+    }
+
+    private static void send(Path file, long start, long end, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = start; position < end; ) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+}
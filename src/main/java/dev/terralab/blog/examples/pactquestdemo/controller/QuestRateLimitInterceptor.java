@@ -0,0 +1,181 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties.Concurrency;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties.Node;
+import dev.terralab.blog.examples.pactquestdemo.exception.TooManyRequestsException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests with a 429 before the controller runs: first when the client has used up
+ * its token bucket for the endpoint, then when the adaptive concurrency limit is reached.
+ * Clients are identified by their remote address, or by the configured header on requests
+ * from a trusted proxy. In sharded mode the other nodes are trusted too, as they pass on the
+ * identity of the client a routed request came from. Event subscriptions give their concurrency slot back once the handler
+ * has returned, as they stay open for as long as the client listens; streamed lists hold it
+ * until they have been written.
+ */
+@Component
+public class QuestRateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED = QuestRateLimitInterceptor.class.getName() + ".started";
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final Set<String> trustedProxies = new HashSet<>();
+    private final Map<String, ClientRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, String> buckets;
+    private final QuestRateLimitProperties.Limit defaultLimit;
+    private final int maxClients;
+    private final Map<String, Duration> latencyThresholds;
+    private final long latencyThreshold;
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    private record Endpoint(String name, ClientRateLimiter limiter, long latencyThreshold, boolean subscription) {
+    }
+
+    public QuestRateLimitInterceptor(QuestRateLimitProperties properties, QuestShardingProperties sharding) {
+        this.enabled = properties.enabled();
+        this.clientHeader = properties.clientHeader();
+        for (String proxy : properties.trustedProxies()) {
+            trust(proxy);
+        }
+        if (sharding.enabled()) {
+            for (Node node : sharding.nodes()) {
+                trust(node.url().getHost());
+            }
+        }
+        this.maxClients = properties.maxClients();
+        properties.endpoints().forEach((endpoint, limit) ->
+                limiters.put(endpoint, new ClientRateLimiter(limit.permitsPerSecond(), limit.burst(), maxClients)));
+        this.buckets = properties.buckets();
+        this.defaultLimit = properties.defaultLimit();
+        Concurrency concurrency = properties.concurrency();
+        this.latencyThresholds = concurrency.latencyThresholds();
+        this.latencyThreshold = concurrency.latencyThreshold().toNanos();
+        this.concurrencyLimiter = concurrency.enabled()
+                ? new ConcurrencyLimiter(concurrency.initialLimit(), concurrency.minLimit(), concurrency.maxLimit(), concurrency.backoffRatio())
+                : null;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!enabled || request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        long now = System.nanoTime();
+        Endpoint endpoint = endpoints.computeIfAbsent(method.getMethod(), this::endpointOf);
+        long wait = endpoint.limiter().tryAcquire(clientOf(request), now);
+        if (wait > 0) {
+            throw new TooManyRequestsException("Rate limit exceeded for " + endpoint.name(),
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+        if (concurrencyLimiter != null) {
+            if (!concurrencyLimiter.tryAcquire()) {
+                throw new TooManyRequestsException("Server is overloaded", 1);
+            }
+            request.setAttribute(STARTED, now);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method && endpoints.get(method.getMethod()).subscription()) {
+            release(request, handler);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request, handler);
+    }
+
+    private void release(HttpServletRequest request, Object handler) {
+        if (request.getAttribute(STARTED) instanceof Long started && handler instanceof HandlerMethod method) {
+            request.removeAttribute(STARTED);
+            concurrencyLimiter.release(System.nanoTime() - started, endpoints.get(method.getMethod()).latencyThreshold());
+        }
+    }
+
+    private Endpoint endpointOf(Method method) {
+        String name = endpointName(method);
+        String bucket = buckets.getOrDefault(name, name);
+        ClientRateLimiter limiter = limiters.computeIfAbsent(bucket,
+                unlisted -> new ClientRateLimiter(defaultLimit.permitsPerSecond(), defaultLimit.burst(), maxClients));
+        Duration threshold = latencyThresholds.get(name);
+        return new Endpoint(bucket, limiter, threshold == null ? latencyThreshold : threshold.toNanos(),
+                ResponseBodyEmitter.class.isAssignableFrom(method.getReturnType()));
+    }
+
+    String clientHeader() {
+        return clientHeader;
+    }
+
+    /**
+     * The identity the request is rate limited under, which in sharded mode is passed on with
+     * the requests routed to other nodes.
+     */
+    String clientOf(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        if (clientHeader.isEmpty() || trustedProxies.isEmpty() || !trustedProxies.contains(addressOf(remote))) {
+            return remote;
+        }
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isEmpty() ? remote : client;
+    }
+
+    private void trust(String host) {
+        try {
+            for (InetAddress address : InetAddress.getAllByName(host)) {
+                trustedProxies.add(address.getHostAddress());
+            }
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown trusted proxy " + host, e);
+        }
+    }
+
+    /**
+     * Normalises an address literal, so {@code ::1} and {@code 0:0:0:0:0:0:0:1} compare equal;
+     * host names, which are only expected in configuration, are resolved.
+     */
+    private static String addressOf(String host) {
+        try {
+            return InetAddress.getByName(host).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown trusted proxy " + host, e);
+        }
+    }
+
+    static String endpointName(Method method) {
+        String name = method.getName();
+        StringBuilder endpoint = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                endpoint.append('-').append(Character.toLowerCase(c));
+            } else {
+                endpoint.append(c);
+            }
+        }
+        return endpoint.toString();
+    }
+}
@@ -0,0 +1,473 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties.Node;
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.ShardUnavailableException;
+import dev.terralab.blog.examples.pactquestdemo.exception.UnsupportedShardOperationException;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestShardRing;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes quest requests in sharded mode, where each node owns the quest ids that
+ * {@link QuestShardRing} assigns to it. {@code GET} and {@code PUT /quest/{id}} for an id
+ * owned by another node are proxied to the owner, and {@code GET /quest} (optionally filtered
+ * by status) is sent to every node in parallel and the answers merged in id order.
+ * <p>
+ * The merge streams: each shard's list is read one quest at a time and the quest with the
+ * lowest id is written straight to the response, so the node holds one quest per shard rather
+ * than the cluster's whole list. Shards are asked for the format the client negotiated, and the
+ * merged list's ETag is derived from the shards' ETags, so an unchanged cluster still answers
+ * {@code If-None-Match} with 304. A shard whose list cannot be read is answered with 502 while
+ * nothing has been written yet; after that the status can no longer change, so the list is left
+ * unterminated, which clients reject as malformed. A shard that stops sending for
+ * {@code timeout} in the middle of its list is treated the same way.
+ * <p>
+ * Routed requests are handled asynchronously, so a node never holds a request thread while
+ * it waits for another node; otherwise nodes with busy thread pools could end up waiting on
+ * each other. Requests between nodes carry the {@link #SHARD_HEADER} header, which makes the
+ * receiving node answer from its own shard, and the client's identity in the rate-limit
+ * header, as the receiving node's {@link QuestRateLimitInterceptor} would key it. Nodes trust
+ * each other's header, so a routed request is charged to the client that sent it by each node
+ * that serves it, not to the node it came through.
+ * <p>
+ * {@code POST /quest} and {@code POST /quest/import} are rejected with 501: ids are allocated
+ * from the receiving node's own quests, so nodes would hand out the same ids and store quests
+ * away from the node that owns them. Requests that would otherwise be answered from the
+ * receiving node's shard alone are rejected with 501 too, rather than answered with part of the
+ * cluster's quests: batch updates, paged and streamed lists, counts, the event feed and exports.
+ */
+@Slf4j
+public class QuestShardRoutingFilter extends OncePerRequestFilter {
+
+    public static final String SHARD_HEADER = "X-Quest-Shard";
+
+    private static final String QUEST_PATH = "/quest";
+    private static final String IMPORT_PATH = "/quest/import";
+    private static final Set<String> LOCAL_PATHS = Set.of("/quest/count", "/quest/events", "/quest/export", "/quest/export/download");
+    private static final Set<String> LIST_PARAMETERS = Set.of("status");
+    private static final List<String> FORWARDED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> RETURNED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.VARY, HttpHeaders.RETRY_AFTER);
+    private static final Comparator<ShardCursor> BY_ID = Comparator.comparingLong(cursor -> cursor.current.id());
+
+    private final String self;
+    private final Map<String, URI> nodes = new LinkedHashMap<>();
+    private final QuestShardRing ring;
+    private final Duration timeout;
+    private final QuestRateLimitInterceptor rateLimiter;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader questReader;
+    private final ObjectWriter questWriter;
+    private final Map<QuestWireFormat, JsonFactory> factories = new EnumMap<>(QuestWireFormat.class);
+    private final ScheduledExecutorService watchdog;
+    private final Map<HttpStatus, Counter> errors = new EnumMap<>(HttpStatus.class);
+
+    public QuestShardRoutingFilter(QuestShardingProperties properties, QuestRateLimitInterceptor rateLimiter, ObjectMapper objectMapper,
+                                   QuestMetrics metrics) {
+        for (Node node : properties.nodes()) {
+            nodes.put(node.name(), node.url());
+        }
+        if (!nodes.containsKey(properties.self())) {
+            throw new IllegalStateException("quest.sharding.self must name one of quest.sharding.nodes");
+        }
+        this.self = properties.self();
+        this.ring = new QuestShardRing(nodes.keySet(), properties.virtualNodes());
+        this.timeout = properties.timeout();
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.questReader = objectMapper.readerFor(QuestResponseDto.class);
+        this.questWriter = objectMapper.writerFor(QuestResponseDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        factories.put(QuestWireFormat.JSON, objectMapper.getFactory());
+        factories.put(QuestWireFormat.CBOR, new CBORFactory());
+        factories.put(QuestWireFormat.SMILE, new SmileFactory());
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("quest-shard-watchdog").daemon().factory());
+        errors.put(HttpStatus.NOT_IMPLEMENTED, metrics.errors(HttpStatus.NOT_IMPLEMENTED.name(), UnsupportedShardOperationException.class));
+        errors.put(HttpStatus.SERVICE_UNAVAILABLE, metrics.errors(HttpStatus.SERVICE_UNAVAILABLE.name(), ShardUnavailableException.class));
+        errors.put(HttpStatus.BAD_GATEWAY, metrics.errors(HttpStatus.BAD_GATEWAY.name(), ShardUnavailableException.class));
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (HttpMethod.POST.matches(method) && (path.equals(QUEST_PATH) || path.equals(IMPORT_PATH))) {
+            error(response, HttpStatus.NOT_IMPLEMENTED,
+                    new UnsupportedShardOperationException("Creating and importing quests is not supported in sharded mode"));
+            return;
+        }
+        if (request.getHeader(SHARD_HEADER) == null) {
+            if (path.equals(QUEST_PATH) && HttpMethod.GET.matches(method)) {
+                if (!LIST_PARAMETERS.containsAll(request.getParameterMap().keySet())) {
+                    error(response, HttpStatus.NOT_IMPLEMENTED,
+                            new UnsupportedShardOperationException("Paging and streaming quests is not supported in sharded mode"));
+                    return;
+                }
+                gather(request, response);
+                return;
+            }
+            if (path.equals(QUEST_PATH) && HttpMethod.PATCH.matches(method)) {
+                error(response, HttpStatus.NOT_IMPLEMENTED,
+                        new UnsupportedShardOperationException("Batch updates are not supported in sharded mode"));
+                return;
+            }
+            if (LOCAL_PATHS.contains(path)) {
+                error(response, HttpStatus.NOT_IMPLEMENTED,
+                        new UnsupportedShardOperationException("Counting, following and exporting quests is not supported in sharded mode"));
+                return;
+            }
+            long id = questIdOf(path);
+            if (id >= 0 && (HttpMethod.GET.matches(method) || HttpMethod.PUT.matches(method)) && !self.equals(ring.ownerOf(id))) {
+                forward(request, response, ring.ownerOf(id));
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, String owner) throws IOException {
+        HttpRequest.Builder forwarded = requestTo(owner, request);
+        for (String header : FORWARDED_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                forwarded.header(header, value);
+            }
+        }
+        forwarded.method(request.getMethod(), HttpMethod.PUT.matches(request.getMethod())
+                ? HttpRequest.BodyPublishers.ofByteArray(request.getInputStream().readAllBytes())
+                : HttpRequest.BodyPublishers.noBody());
+
+        AsyncContext async = startAsync(request);
+        client.sendAsync(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray()).whenComplete((answer, failure) -> {
+            try {
+                if (failure != null) {
+                    unavailable(response, owner, failure);
+                } else {
+                    relay(answer, response);
+                }
+            } finally {
+                async.complete();
+            }
+        });
+    }
+
+    private void gather(HttpServletRequest request, HttpServletResponse response) {
+        QuestWireFormat format = QuestWireFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        Map<String, CompletableFuture<HttpResponse<InputStream>>> answers = new LinkedHashMap<>();
+        for (String node : nodes.keySet()) {
+            HttpRequest shardRequest = requestTo(node, request).header(HttpHeaders.ACCEPT, format.mediaType().toString()).GET().build();
+            answers.put(node, client.sendAsync(shardRequest, HttpResponse.BodyHandlers.ofInputStream()));
+        }
+
+        AsyncContext async = request.startAsync();
+        // the merge may stream for longer than any fixed limit; stalled shards are cut off by the watchdog instead
+        async.setTimeout(0);
+        CompletableFuture.allOf(answers.values().toArray(CompletableFuture[]::new)).whenComplete((ignored, failure) -> {
+            List<ShardCursor> cursors = new CopyOnWriteArrayList<>();
+            ScheduledFuture<?> stallCheck = watchdog.scheduleWithFixedDelay(() -> cursors.forEach(ShardCursor::closeIfStalled),
+                    timeout.toMillis(), timeout.toMillis() / 4 + 1, TimeUnit.MILLISECONDS);
+            try {
+                merge(request, response, format, answers, cursors);
+            } finally {
+                stallCheck.cancel(false);
+                for (CompletableFuture<HttpResponse<InputStream>> answer : answers.values()) {
+                    if (answer.state() == Future.State.SUCCESS) {
+                        closeQuietly(answer.resultNow().body());
+                    }
+                }
+                async.complete();
+            }
+        });
+    }
+
+    private void merge(HttpServletRequest request, HttpServletResponse response, QuestWireFormat format,
+                       Map<String, CompletableFuture<HttpResponse<InputStream>>> answers, List<ShardCursor> cursors) {
+        StringBuilder shardETags = new StringBuilder();
+        boolean tagged = true;
+        for (Map.Entry<String, CompletableFuture<HttpResponse<InputStream>>> answer : answers.entrySet()) {
+            if (answer.getValue().isCompletedExceptionally()) {
+                failed(response, HttpStatus.SERVICE_UNAVAILABLE, answer.getKey(), "is unavailable", answer.getValue().exceptionNow());
+                return;
+            }
+            HttpResponse<InputStream> shardResponse = answer.getValue().resultNow();
+            if (shardResponse.statusCode() != HttpStatus.OK.value()) {
+                relay(shardResponse, response);
+                return;
+            }
+            Optional<String> shardETag = shardResponse.headers().firstValue(HttpHeaders.ETAG);
+            tagged &= shardETag.isPresent();
+            shardETag.ifPresent(etag -> shardETags.append(answer.getKey()).append('=').append(etag).append('\n'));
+        }
+        String etag = tagged ? "\"shards-" + digest(shardETags) + "\"" : null;
+        if (etag != null && matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            return;
+        }
+
+        JsonFactory factory = factories.get(format);
+        PriorityQueue<ShardCursor> queue = new PriorityQueue<>(BY_ID);
+        try {
+            for (Map.Entry<String, CompletableFuture<HttpResponse<InputStream>>> answer : answers.entrySet()) {
+                InputStream body = answer.getValue().resultNow().body();
+                ShardCursor cursor = new ShardCursor(answer.getKey(), body, factory.createParser(body));
+                cursors.add(cursor);
+                if (cursor.start()) {
+                    queue.add(cursor);
+                }
+            }
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(format.mediaType().toString());
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            JsonGenerator generator = factory.createGenerator(response.getOutputStream());
+            // a list cut short by a failing shard must stay unterminated, not be closed as if complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+            while (!queue.isEmpty()) {
+                ShardCursor cursor = queue.poll();
+                questWriter.writeValue(generator, cursor.current);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            generator.writeEndArray();
+            generator.close();
+        } catch (ShardReadException e) {
+            if (response.isCommitted()) {
+                log.warn("Shard {} failed while its quests were being merged; the response is cut short", e.node, e.getCause());
+            } else {
+                response.resetBuffer();
+                failed(response, HttpStatus.BAD_GATEWAY, e.node, "sent an unreadable quest list", e.getCause());
+            }
+        } catch (IOException e) {
+            log.debug("Could not write the merged quest list", e);
+        }
+    }
+
+    private HttpRequest.Builder requestTo(String node, HttpServletRequest request) {
+        String query = request.getQueryString();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(nodes.get(node).resolve(query == null ? path : path + "?" + query))
+                .timeout(timeout)
+                .header(SHARD_HEADER, self);
+        if (!rateLimiter.clientHeader().isEmpty()) {
+            builder.header(rateLimiter.clientHeader(), rateLimiter.clientOf(request));
+        }
+        return builder;
+    }
+
+    private AsyncContext startAsync(HttpServletRequest request) {
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeout.multipliedBy(2).toMillis());
+        return async;
+    }
+
+    private void relay(HttpResponse<?> answer, HttpServletResponse response) {
+        try {
+            response.setStatus(answer.statusCode());
+            for (String header : RETURNED_HEADERS) {
+                answer.headers().firstValue(header).ifPresent(value -> response.setHeader(header, value));
+            }
+            if (answer.body() instanceof InputStream body) {
+                body.transferTo(response.getOutputStream());
+            } else {
+                response.getOutputStream().write((byte[]) answer.body());
+            }
+        } catch (IOException e) {
+            log.debug("Could not relay the shard response", e);
+        }
+    }
+
+    private void unavailable(HttpServletResponse response, String node, Throwable failure) {
+        failed(response, HttpStatus.SERVICE_UNAVAILABLE, node, "is unavailable", failure);
+    }
+
+    private void failed(HttpServletResponse response, HttpStatus status, String node, String problem, Throwable failure) {
+        error(response, status, new ShardUnavailableException("Shard " + node + " " + problem, failure));
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, RuntimeException exception) {
+        errors.get(status).increment();
+        try {
+            response.setStatus(status.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(objectMapper.writeValueAsBytes(new ErrorResponseDto(status.name(), exception.getMessage())));
+        } catch (IOException e) {
+            log.debug("Could not write the error response", e);
+        }
+    }
+
+    private static String digest(CharSequence shardETags) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(shardETags.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Could not close a shard response", e);
+        }
+    }
+
+    /**
+     * One shard's list, read one quest ahead of the merge.
+     */
+    private final class ShardCursor {
+
+        private final String node;
+        private final InputStream body;
+        private final JsonParser parser;
+        private volatile long readingSince;
+        private QuestResponseDto current;
+
+        ShardCursor(String node, InputStream body, JsonParser parser) {
+            this.node = node;
+            this.body = body;
+            this.parser = parser;
+        }
+
+        boolean start() {
+            return read(true);
+        }
+
+        boolean advance() {
+            return read(false);
+        }
+
+        private boolean read(boolean first) {
+            readingSince = System.nanoTime();
+            try {
+                if (first && parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected a quest list");
+                }
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    current = null;
+                    return false;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a quest but found " + token);
+                }
+                current = questReader.readValue(parser);
+                return true;
+            } catch (IOException e) {
+                throw new ShardReadException(node, e);
+            } finally {
+                readingSince = 0;
+            }
+        }
+
+        void closeIfStalled() {
+            long since = readingSince;
+            if (since != 0 && System.nanoTime() - since > timeout.toNanos()) {
+                // closing the body ends the blocked read; the parser itself is only used by the merging thread
+                closeQuietly(body);
+            }
+        }
+    }
+
+    private static final class ShardReadException extends RuntimeException {
+
+        private final String node;
+
+        ShardReadException(String node, IOException cause) {
+            super(cause);
+            this.node = node;
+        }
+    }
+
+    private static long questIdOf(String path) {
+        if (!path.startsWith(QUEST_PATH + "/") || path.length() == QUEST_PATH.length() + 1
+                || path.length() > QUEST_PATH.length() + 19) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = QUEST_PATH.length() + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
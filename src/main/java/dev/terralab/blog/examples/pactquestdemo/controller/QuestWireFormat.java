@@ -0,0 +1,84 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encodings the quest list, read and update endpoints can use. JSON is the default; CBOR and
+ * Smile carry the same documents in a binary form that is smaller and cheaper to write and
+ * parse, for internal callers that ask for one of them with {@code Accept} and
+ * {@code Content-Type}.
+ */
+public enum QuestWireFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    QuestWireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Picks the format the {@code Accept} header prefers. Each format gets the quality of the
+     * most specific accepted type that matches it, and JSON wins ties, so it is also chosen
+     * when the header is missing, a wildcard or malformed.
+     */
+    public static QuestWireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        QuestWireFormat best = JSON;
+        double bestQuality = 0;
+        for (QuestWireFormat format : values()) {
+            double quality = format.quality(accepted);
+            if (quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives every format its own ETag, as caches may only reuse a representation for requests
+     * that negotiate the same one. JSON ETags are left as they are.
+     */
+    public String eTag(String etag) {
+        if (this == JSON) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private double quality(List<MediaType> accepted) {
+        MediaType match = null;
+        for (MediaType type : accepted) {
+            if (type.includes(mediaType) && (match == null || specificity(type) > specificity(match))) {
+                match = type;
+            }
+        }
+        return match == null ? 0 : match.getQualityValue();
+    }
+
+    private static int specificity(MediaType type) {
+        return type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+    }
+}
@@ -0,0 +1,4 @@
+package dev.terralab.blog.examples.pactquestdemo.domain;
+
+public record QuestStatusChangedEvent(Long id, Status from, Status to) {
+}
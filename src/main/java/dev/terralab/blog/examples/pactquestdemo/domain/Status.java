@@ -2,18 +2,44 @@ package dev.terralab.blog.examples.pactquestdemo.domain;
 
 import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum Status {
     NOT_STARTED,
     IN_PROGRESS,
     COMPLETED;
-    
+
+    private static final Status[] VALUES = values();
+    private static final Map<String, Status> BY_NAME = new HashMap<>();
+    private static final int[] TRANSITIONS = new int[VALUES.length];
+    private static final InvalidStatusException INVALID_STATUS = new InvalidStatusException("Invalid status");
+
+    static {
+        for (Status status : VALUES) {
+            BY_NAME.put(status.name(), status);
+        }
+        allow(NOT_STARTED, IN_PROGRESS);
+        allow(IN_PROGRESS, COMPLETED);
+    }
+
     public static Status from(String status) {
-       try {
-              return Status.valueOf(status);
-         } catch (IllegalArgumentException e) {
-              throw new InvalidStatusException("Invalid status: " + status);
-       }
+        Status parsed = status == null ? null : BY_NAME.get(status);
+        if (parsed == null) {
+            throw INVALID_STATUS;
+        }
+        return parsed;
+    }
+
+    public boolean canTransitionTo(Status next) {
+        return (TRANSITIONS[ordinal()] & (1 << next.ordinal())) != 0;
+    }
+
+    public boolean isFinal() {
+        return TRANSITIONS[ordinal()] == 0;
+    }
+
+    private static void allow(Status from, Status to) {
+        TRANSITIONS[from.ordinal()] |= 1 << to.ordinal();
     }
-    
-    
 }
@@ -0,0 +1,12 @@
+package dev.terralab.blog.examples.pactquestdemo.dto;
+
+public record QuestBatchUpdateResultDto(Long id, boolean success, QuestResponseDto quest, ErrorResponseDto error) {
+
+    public static QuestBatchUpdateResultDto updated(QuestResponseDto quest) {
+        return new QuestBatchUpdateResultDto(quest.id(), true, quest, null);
+    }
+
+    public static QuestBatchUpdateResultDto failed(Long id, ErrorResponseDto error) {
+        return new QuestBatchUpdateResultDto(id, false, null, error);
+    }
+}
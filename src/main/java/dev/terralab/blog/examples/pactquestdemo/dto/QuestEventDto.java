@@ -0,0 +1,4 @@
+package dev.terralab.blog.examples.pactquestdemo.dto;
+
+public record QuestEventDto(long sequence, Long id, String from, String to) {
+}
@@ -0,0 +1,14 @@
+package dev.terralab.blog.examples.pactquestdemo.dto;
+
+import dev.terralab.blog.examples.pactquestdemo.service.QuestExporter.Export;
+
+import java.time.Instant;
+
+public record QuestExportDto(String id, String state, long quests, long bytes, Instant startedAt, Instant completedAt,
+                             String error) {
+
+    public static QuestExportDto from(Export export) {
+        return new QuestExportDto(export.id(), export.state().name(), export.quests(), export.bytes(),
+                export.startedAt(), export.completedAt(), export.error());
+    }
+}
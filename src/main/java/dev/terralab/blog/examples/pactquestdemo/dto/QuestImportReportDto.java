@@ -0,0 +1,7 @@
+package dev.terralab.blog.examples.pactquestdemo.dto;
+
+import java.util.List;
+
+public record QuestImportReportDto(long rows, long imported, long failed, long elapsedMillis, double rowsPerSecond,
+                                   List<QuestImportErrorDto> errors) {
+}
@@ -0,0 +1,4 @@
+package dev.terralab.blog.examples.pactquestdemo.dto;
+
+public record QuestImportRowDto(Long id, String name, String status, String reward) {
+}
@@ -0,0 +1,7 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+public class ExportNotAvailableException extends RuntimeException {
+    public ExportNotAvailableException(String string) {
+        super(string);
+    }
+}
@@ -1,28 +1,83 @@
 package dev.terralab.blog.examples.pactquestdemo.exception;
 
 import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
 public class GlobalErrorHandler {
+
+    private final Counter questNotFound;
+    private final Counter exportNotAvailable;
+    private final Counter invalidStatus;
+    private final Counter invalidRequest;
+    private final Counter invalidStatusTransition;
+    private final Counter tooManyRequests;
+    private final Counter storageBacklog;
+
+    public GlobalErrorHandler(QuestMetrics metrics) {
+        this.questNotFound = metrics.errors("NOT_FOUND", QuestNotFoundException.class);
+        this.exportNotAvailable = metrics.errors("NOT_FOUND", ExportNotAvailableException.class);
+        this.invalidStatus = metrics.errors("BAD_REQUEST", InvalidStatusException.class);
+        this.invalidRequest = metrics.errors("BAD_REQUEST", InvalidRequestException.class);
+        this.invalidStatusTransition = metrics.errors("INVALID_ACTION", InvalidStatusTransitionException.class);
+        this.tooManyRequests = metrics.errors("TOO_MANY_REQUESTS", TooManyRequestsException.class);
+        this.storageBacklog = metrics.errors("SERVICE_UNAVAILABLE", StorageBacklogException.class);
+    }
+
     @ExceptionHandler(QuestNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponseDto handleQuestNotFoundException(QuestNotFoundException ex) {
+        questNotFound.increment();
         return new ErrorResponseDto("NOT_FOUND", ex.getMessage());
     }
     
+    @ExceptionHandler(ExportNotAvailableException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponseDto handleExportNotAvailableException(ExportNotAvailableException ex) {
+        exportNotAvailable.increment();
+        return new ErrorResponseDto("NOT_FOUND", ex.getMessage());
+    }
+
     @ExceptionHandler(InvalidStatusException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponseDto handleInvalidStatusException(InvalidStatusException ex) {
+        invalidStatus.increment();
+        return new ErrorResponseDto("BAD_REQUEST", ex.getMessage());
+    }
+    
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponseDto handleInvalidRequestException(InvalidRequestException ex) {
+        invalidRequest.increment();
         return new ErrorResponseDto("BAD_REQUEST", ex.getMessage());
     }
     
     @ExceptionHandler(InvalidStatusTransitionException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponseDto handleInvalidStatusTransitionException(InvalidStatusTransitionException ex) {
+        invalidStatusTransition.increment();
         return new ErrorResponseDto("INVALID_ACTION", ex.getMessage());
     }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponseDto> handleTooManyRequestsException(TooManyRequestsException ex) {
+        tooManyRequests.increment();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponseDto("TOO_MANY_REQUESTS", ex.getMessage()));
+    }
+
+    @ExceptionHandler(StorageBacklogException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponseDto handleStorageBacklogException(StorageBacklogException ex) {
+        storageBacklog.increment();
+        return new ErrorResponseDto("SERVICE_UNAVAILABLE", ex.getMessage());
+    }
 }
@@ -0,0 +1,7 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String string) {
+        super(string);
+    }
+}
@@ -1,7 +1,10 @@
 package dev.terralab.blog.examples.pactquestdemo.exception;
 
 public class InvalidStatusException extends RuntimeException {
+    /**
+     * Rejections are expected on this path and never logged, so no stack trace is captured.
+     */
     public InvalidStatusException(String string) {
-        super(string);
+        super(string, null, false, false);
     }
 }
@@ -2,6 +2,6 @@ package dev.terralab.blog.examples.pactquestdemo.exception;
 
 public class InvalidStatusTransitionException extends RuntimeException {
     public InvalidStatusTransitionException(String string) {
-        super(string);
+        super(string, null, false, false);
     }
 }
@@ -2,6 +2,6 @@ package dev.terralab.blog.examples.pactquestdemo.exception;
 
 public class QuestNotFoundException extends RuntimeException {
     public QuestNotFoundException(String string) {
-        super(string);
+        super(string, null, false, false);
     }
 }
@@ -0,0 +1,8 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+public class ShardUnavailableException extends RuntimeException {
+
+    public ShardUnavailableException(String string, Throwable cause) {
+        super(string, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+public class StorageBacklogException extends RuntimeException {
+    public StorageBacklogException(String string) {
+        super(string, null, false, false);
+    }
+}
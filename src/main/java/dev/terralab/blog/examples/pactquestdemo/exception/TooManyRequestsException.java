@@ -0,0 +1,14 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String string, long retryAfterSeconds) {
+        super(string, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
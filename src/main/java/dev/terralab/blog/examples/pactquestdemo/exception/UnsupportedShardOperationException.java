@@ -0,0 +1,8 @@
+package dev.terralab.blog.examples.pactquestdemo.exception;
+
+public class UnsupportedShardOperationException extends RuntimeException {
+
+    public UnsupportedShardOperationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,510 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps quests in primitive columns instead of one object per quest: the id, the status
+ * ordinal and dictionary codes for name and reward, with an open-addressing table from id to
+ * row. Names and rewards are stored once per distinct value as UTF-8 bytes, so repeated
+ * rewards such as {@code "100 XP"} cost four bytes per quest.
+ * <p>
+ * {@link Quest} objects are only created when a caller reads them. {@link #findAll()} copies
+ * the columns into an id-ordered snapshot and returns a list view that builds each quest on
+ * access; the snapshot is rebuilt lazily after a write.
+ * <p>
+ * Writes take a {@link StampedLock} exclusively; lookups by id run as optimistic reads and
+ * only fall back to the read lock when a write got in between. Dictionary entries are never
+ * removed, so values that are overwritten stay in the dictionary.
+ * <p>
+ * Rows are also bucketed by status, maintained under the write lock, so filtered reads only
+ * decode matching rows and per-status counts are a single read.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "quest.repository", name = "type", havingValue = "columnar")
+public class ColumnarQuestRepository implements QuestRepository {
+
+    private static final int NO_VALUE = -1;
+    private static final Status[] STATUSES = Status.values();
+
+    private final StampedLock lock = new StampedLock();
+    private final Dictionary names = new Dictionary(false);
+    private final Dictionary rewards = new Dictionary(true);
+    private final AtomicLong version = new AtomicLong();
+    private final LongHashSet[] rowsByStatus = new LongHashSet[STATUSES.length];
+    private final AtomicLongArray statusCounts = new AtomicLongArray(STATUSES.length);
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(-1, new long[0], new byte[0], new int[0], new int[0]);
+
+    private long[] ids = new long[16];
+    private byte[] statuses = new byte[16];
+    private int[] nameCodes = new int[16];
+    private int[] rewardCodes = new int[16];
+    private int size;
+    private volatile long maxId;
+
+    private long[] keys = new long[32];
+    private int[] rows = new int[32];
+
+    public ColumnarQuestRepository() {
+        for (int i = 0; i < rowsByStatus.length; i++) {
+            rowsByStatus[i] = new LongHashSet();
+        }
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        long stamp = lock.tryOptimisticRead();
+        Quest quest = stamp == 0 ? null : questWithId(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                quest = questWithId(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(quest);
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        List<Quest> quests = new ArrayList<>(ids.size());
+        long stamp = lock.readLock();
+        try {
+            for (Long id : ids) {
+                Quest quest = questWithId(id);
+                if (quest != null) {
+                    quests.add(quest);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return quests;
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        return currentSnapshot();
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        Snapshot all = currentSnapshot();
+        int from = 0;
+        if (afterId != null) {
+            int index = Arrays.binarySearch(all.ids(), afterId);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        return all.subList(from, Math.min(all.size(), from + limit));
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        List<Quest> quests = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for (Status status : statuses) {
+                LongHashSet matching = rowsByStatus[status.ordinal()];
+                long[] members = new long[matching.size()];
+                matching.copyInto(members, 0);
+                for (long member : members) {
+                    int row = (int) member;
+                    quests.add(quest(ids[row], this.statuses[row], nameCodes[row], rewardCodes[row]));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        quests.sort(Comparator.comparingLong(Quest::getId));
+        return quests;
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    @Override
+    public void save(Quest quest) {
+        long stamp = lock.writeLock();
+        try {
+            put(quest);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        if (quests.isEmpty()) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (Quest quest : quests) {
+                put(quest);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        long stamp = lock.writeLock();
+        try {
+            int row = rowOf(id);
+            if (row < 0 || statuses[row] != statusCode(expected)) {
+                return false;
+            }
+            moveRow(row, statuses[row], statusCode(next));
+            statuses[row] = statusCode(next);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public long maxId() {
+        return maxId;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long observed = version.get();
+        if (current.version() == observed) {
+            return current;
+        }
+        snapshotLock.lock();
+        try {
+            current = snapshot;
+            observed = version.get();
+            if (current.version() != observed) {
+                current = buildSnapshot(observed);
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private Snapshot buildSnapshot(long observed) {
+        long stamp = lock.readLock();
+        try {
+            long[] sortedIds = Arrays.copyOf(ids, size);
+            Arrays.sort(sortedIds);
+            byte[] sortedStatuses = new byte[size];
+            int[] sortedNames = new int[size];
+            int[] sortedRewards = new int[size];
+            for (int i = 0; i < size; i++) {
+                int row = rowOf(sortedIds[i]);
+                sortedStatuses[i] = statuses[row];
+                sortedNames[i] = nameCodes[row];
+                sortedRewards[i] = rewardCodes[row];
+            }
+            return new Snapshot(observed, sortedIds, sortedStatuses, sortedNames, sortedRewards);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * May run under an optimistic read, so it must tolerate columns that are being resized and
+     * return some value rather than fail; the caller discards it if the read was invalidated.
+     */
+    private Quest questWithId(Long id) {
+        if (id == null) {
+            return null;
+        }
+        long[] ids = this.ids;
+        byte[] statuses = this.statuses;
+        int[] nameCodes = this.nameCodes;
+        int[] rewardCodes = this.rewardCodes;
+        int row = rowOf(id);
+        if (row < 0 || row >= ids.length || row >= statuses.length || row >= nameCodes.length || row >= rewardCodes.length) {
+            return null;
+        }
+        return quest(ids[row], statuses[row], nameCodes[row], rewardCodes[row]);
+    }
+
+    private Quest quest(long id, byte status, int name, int reward) {
+        return new Quest(id, names.decode(name), status == NO_VALUE || status >= STATUSES.length ? null : STATUSES[status], rewards.decode(reward));
+    }
+
+    private void put(Quest quest) {
+        long id = Objects.requireNonNull(quest.getId(), "Quest id must not be null");
+        int row = rowOf(id);
+        byte previous = NO_VALUE;
+        if (row < 0) {
+            row = appendRow(id);
+            if (id > maxId) {
+                maxId = id;
+            }
+        } else {
+            previous = statuses[row];
+        }
+        moveRow(row, previous, statusCode(quest.getStatus()));
+        statuses[row] = statusCode(quest.getStatus());
+        nameCodes[row] = names.encode(quest.getName());
+        rewardCodes[row] = rewards.encode(quest.getReward());
+    }
+
+    private void moveRow(int row, byte from, byte to) {
+        if (from == to) {
+            return;
+        }
+        if (from != NO_VALUE) {
+            rowsByStatus[from].remove(row);
+            statusCounts.decrementAndGet(from);
+        }
+        if (to != NO_VALUE) {
+            rowsByStatus[to].add(row);
+            statusCounts.incrementAndGet(to);
+        }
+    }
+
+    private int appendRow(long id) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            rewardCodes = Arrays.copyOf(rewardCodes, capacity);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int row = size++;
+        ids[row] = id;
+        int slot = slotOf(keys, rows, id);
+        keys[slot] = id;
+        rows[slot] = row + 1;
+        return row;
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        int[] newRows = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            int slot = slotOf(newKeys, newRows, ids[row]);
+            newKeys[slot] = ids[row];
+            newRows[slot] = row + 1;
+        }
+        keys = newKeys;
+        rows = newRows;
+    }
+
+    private int rowOf(long id) {
+        long[] keys = this.keys;
+        int[] rows = this.rows;
+        if (keys.length != rows.length) {
+            return NO_VALUE;
+        }
+        int slot = slotOf(keys, rows, id);
+        return slot < 0 ? NO_VALUE : rows[slot] - 1;
+    }
+
+    /**
+     * Returns the slot holding {@code id}, or the empty slot it would go into. Probing is
+     * bounded so that a table mutated under an optimistic read cannot loop forever.
+     */
+    private static int slotOf(long[] keys, int[] rows, long id) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(id) & mask;
+        for (int probes = 0; probes < keys.length; probes++) {
+            if (rows[slot] == 0 || keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static byte statusCode(Status status) {
+        return (byte) (status == null ? NO_VALUE : status.ordinal());
+    }
+
+    /**
+     * The id-ordered column copy behind {@link #findAll()}, exposed as a read-only list that
+     * creates each {@link Quest} when it is accessed.
+     */
+    private final class Snapshot extends AbstractList<Quest> implements RandomAccess {
+
+        private final long version;
+        private final long[] ids;
+        private final byte[] statuses;
+        private final int[] names;
+        private final int[] rewards;
+
+        Snapshot(long version, long[] ids, byte[] statuses, int[] names, int[] rewards) {
+            this.version = version;
+            this.ids = ids;
+            this.statuses = statuses;
+            this.names = names;
+            this.rewards = rewards;
+        }
+
+        long version() {
+            return version;
+        }
+
+        long[] ids() {
+            return ids;
+        }
+
+        @Override
+        public Quest get(int index) {
+            Objects.checkIndex(index, ids.length);
+            return quest(ids[index], statuses[index], names[index], rewards[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Append-only string dictionary. Values are kept as UTF-8 in one byte array and found
+     * again through an open-addressing table of codes. Encoding happens under the repository
+     * write lock; decoding needs no lock because entries are never changed once published.
+     * Dictionaries with few, often repeated values can also keep the decoded strings.
+     */
+    private static final class Dictionary {
+
+        private final boolean keepDecoded;
+        private byte[] bytes = new byte[1024];
+        private int[] offsets = new int[65];
+        private int[] table = new int[128];
+        private volatile String[] decoded = new String[0];
+        private volatile int count;
+
+        Dictionary(boolean keepDecoded) {
+            this.keepDecoded = keepDecoded;
+        }
+
+        int encode(String value) {
+            if (value == null) {
+                return NO_VALUE;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            int hash = hash(utf8, 0, utf8.length);
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                int code = table[slot] - 1;
+                if (Arrays.equals(bytes, offsets[code], offsets[code + 1], utf8, 0, utf8.length)) {
+                    return code;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return append(utf8, slot);
+        }
+
+        String decode(int code) {
+            int published = count;
+            byte[] bytes = this.bytes;
+            int[] offsets = this.offsets;
+            if (code < 0 || code >= published || code + 1 >= offsets.length) {
+                return null;
+            }
+            int from = offsets[code];
+            int to = offsets[code + 1];
+            if (from < 0 || to > bytes.length || from > to) {
+                return null;
+            }
+            if (!keepDecoded) {
+                return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+            }
+            String[] decoded = this.decoded;
+            if (code < decoded.length && decoded[code] != null) {
+                return decoded[code];
+            }
+            String value = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+            if (code < decoded.length) {
+                decoded[code] = value;
+            }
+            return value;
+        }
+
+        private int append(byte[] utf8, int slot) {
+            int code = count;
+            int from = offsets[code];
+            if (from + utf8.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, from + utf8.length));
+            }
+            if (code + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            System.arraycopy(utf8, 0, bytes, from, utf8.length);
+            offsets[code + 1] = from + utf8.length;
+            table[slot] = code + 1;
+            if (keepDecoded && code >= decoded.length) {
+                decoded = Arrays.copyOf(decoded, Math.max(16, decoded.length * 2));
+            }
+            count = code + 1;
+            if ((code + 1) * 2 > table.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        private void rehash() {
+            int[] newTable = new int[table.length * 2];
+            int mask = newTable.length - 1;
+            for (int code = 0; code < count; code++) {
+                int slot = hash(bytes, offsets[code], offsets[code + 1]) & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = code + 1;
+            }
+            table = newTable;
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return (int) mix(hash);
+        }
+    }
+}
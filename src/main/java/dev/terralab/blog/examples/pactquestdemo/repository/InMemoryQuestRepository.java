@@ -0,0 +1,422 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quests are kept in lock-striped open-addressing tables keyed by the primitive id.
+ * Lookups never lock, writes only lock the stripe owning the id, and {@link #findAll()}
+ * is served from an id-ordered snapshot that is rebuilt lazily after a write.
+ * <p>
+ * Stored quests are never mutated in place: {@link #save(Quest)} stores a copy and
+ * {@link #findById(Long)} hands out a copy. The lists returned by {@link #findAll()} and
+ * {@link #findAllByStatus(Set)} hold the stored quests and must be treated as read-only.
+ * <p>
+ * Each stripe also keeps the ids of its quests bucketed by status, moved under the same
+ * lock as the write that changes the status, so filtered reads only visit matching quests
+ * and per-status counts are a single read.
+ * <p>
+ * A sorted index of the ids, which only changes when a quest is added, serves
+ * {@link #findAllAfter(Long, int)} in {@code O(log n + limit)} while the {@link #findAll()}
+ * snapshot is out of date, so paging through quests that are being written does not rebuild
+ * and sort the whole snapshot for every page.
+ * <p>
+ * The version is bumped after every write has been applied, so data read after observing
+ * version {@code n} reflects at least every write up to {@code n}.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "quest.repository", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryQuestRepository implements QuestRepository {
+
+    private static final Comparator<Quest> BY_ID = Comparator.comparingLong(Quest::getId);
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong maxId = new AtomicLong();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(Status.values().length);
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of());
+
+    public InMemoryQuestRepository() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public InMemoryQuestRepository(int concurrencyLevel) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(statusCounts);
+        }
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        long key = id;
+        Quest quest = stripeFor(key).get(key);
+        return quest == null ? Optional.empty() : Optional.of(copyOf(quest));
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        List<Quest> quests = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            long key = id;
+            Quest quest = stripeFor(key).get(key);
+            if (quest != null) {
+                quests.add(copyOf(quest));
+            }
+        }
+        return quests;
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        Snapshot current = snapshot;
+        if (current.version() == version.get()) {
+            return current.quests();
+        }
+        snapshotLock.lock();
+        try {
+            current = snapshot;
+            long observed = version.get();
+            if (current.version() != observed) {
+                current = new Snapshot(observed, collect());
+                snapshot = current;
+            }
+            return current.quests();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        Snapshot current = snapshot;
+        if (current.version() == version.get()) {
+            List<Quest> all = current.quests();
+            int from = afterId == null ? 0 : indexAfter(all, afterId);
+            return all.subList(from, Math.min(all.size(), from + limit));
+        }
+        List<Quest> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Long> following = (afterId == null ? ids : ids.tailSet(afterId, false)).iterator();
+        while (page.size() < limit && following.hasNext()) {
+            long key = following.next();
+            page.add(stripeFor(key).get(key));
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        List<Quest> quests = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(statuses, quests);
+        }
+        quests.sort(BY_ID);
+        return quests;
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    @Override
+    public void save(Quest quest) {
+        long key = Objects.requireNonNull(quest.getId(), "Quest id must not be null");
+        if (stripeFor(key).put(key, copyOf(quest))) {
+            ids.add(key);
+        }
+        maxId.accumulateAndGet(key, Math::max);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        if (quests.isEmpty()) {
+            return;
+        }
+        Quest[][] byStripe = new Quest[stripes.length][];
+        int[] counts = new int[stripes.length];
+        long highest = 0;
+        for (Quest quest : quests) {
+            long key = Objects.requireNonNull(quest.getId(), "Quest id must not be null");
+            highest = Math.max(highest, key);
+            int stripe = stripeIndex(key);
+            if (byStripe[stripe] == null) {
+                byStripe[stripe] = new Quest[4];
+            } else if (counts[stripe] == byStripe[stripe].length) {
+                byStripe[stripe] = Arrays.copyOf(byStripe[stripe], counts[stripe] * 2);
+            }
+            byStripe[stripe][counts[stripe]++] = copyOf(quest);
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            if (counts[i] > 0) {
+                stripes[i].putAll(byStripe[i], counts[i], ids);
+            }
+        }
+        maxId.accumulateAndGet(highest, Math::max);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        long key = id;
+        if (!stripeFor(key).replaceStatus(key, expected, next)) {
+            return false;
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public long maxId() {
+        return maxId.get();
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private List<Quest> collect() {
+        Quest[] all = new Quest[0];
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            Quest[] values = stripe.table.values();
+            if (all.length - size < values.length) {
+                all = Arrays.copyOf(all, Math.max(all.length * 2, size + values.length));
+            }
+            for (int i = 0; i < values.length; i++) {
+                Quest quest = Stripe.valueAt(values, i);
+                if (quest != null) {
+                    all[size++] = quest;
+                }
+            }
+        }
+        Quest[] sorted = Arrays.copyOf(all, size);
+        Arrays.sort(sorted, BY_ID);
+        return Collections.unmodifiableList(Arrays.asList(sorted));
+    }
+
+    private static int indexAfter(List<Quest> sorted, long afterId) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).getId() <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Stripe stripeFor(long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private int stripeIndex(long id) {
+        return (int) (mix(id) >>> 32) & stripeMask;
+    }
+
+    private static long mix(long id) {
+        long h = id;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static Quest copyOf(Quest quest) {
+        return new Quest(quest.getId(), quest.getName(), quest.getStatus(), quest.getReward());
+    }
+
+    private record Snapshot(long version, List<Quest> quests) {
+    }
+
+    private record Table(long[] keys, Quest[] values) {
+
+        Table(int capacity) {
+            this(new long[capacity], new Quest[capacity]);
+        }
+
+        int slotOf(long id) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(id) & mask;
+            while (values[slot] != null && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * A single-writer, many-reader hash table. Readers rely on the release/acquire
+     * ordering of the value slot: a key is always written before its value is published,
+     * and a resized table is only published once it is fully populated.
+     */
+    private static final class Stripe {
+
+        private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Quest[].class);
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongHashSet[] byStatus = new LongHashSet[Status.values().length];
+        private final AtomicLongArray statusCounts;
+        private volatile Table table = new Table(16);
+        private int size;
+
+        Stripe(AtomicLongArray statusCounts) {
+            this.statusCounts = statusCounts;
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongHashSet();
+            }
+        }
+
+        static Quest valueAt(Quest[] values, int slot) {
+            return (Quest) VALUES.getAcquire(values, slot);
+        }
+
+        Quest get(long id) {
+            Table current = table;
+            long[] keys = current.keys();
+            Quest[] values = current.values();
+            int mask = keys.length - 1;
+            for (int slot = (int) mix(id) & mask; ; slot = (slot + 1) & mask) {
+                Quest quest = valueAt(values, slot);
+                if (quest == null) {
+                    return null;
+                }
+                if (keys[slot] == id) {
+                    return quest;
+                }
+            }
+        }
+
+        /**
+         * Returns whether the id is new to this stripe.
+         */
+        boolean put(long id, Quest quest) {
+            lock.lock();
+            try {
+                return insert(id, quest);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void putAll(Quest[] quests, int count, Set<Long> added) {
+            lock.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    if (insert(quests[i].getId(), quests[i])) {
+                        added.add(quests[i].getId());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void collect(Set<Status> statuses, List<Quest> into) {
+            lock.lock();
+            try {
+                Table current = table;
+                for (Status status : statuses) {
+                    LongHashSet ids = byStatus[status.ordinal()];
+                    long[] members = new long[ids.size()];
+                    ids.copyInto(members, 0);
+                    for (long id : members) {
+                        into.add(current.values()[current.slotOf(id)]);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean insert(long id, Quest quest) {
+            Table current = table;
+            int slot = current.slotOf(id);
+            Quest previous = current.values()[slot];
+            if (previous == null) {
+                if ((size + 1) * 2 > current.keys().length) {
+                    current = resize(current);
+                    table = current;
+                    slot = current.slotOf(id);
+                }
+                current.keys()[slot] = id;
+                size++;
+            }
+            VALUES.setRelease(current.values(), slot, quest);
+            move(id, previous == null ? null : previous.getStatus(), quest.getStatus());
+            return previous == null;
+        }
+
+        boolean replaceStatus(long id, Status expected, Status next) {
+            lock.lock();
+            try {
+                Table current = table;
+                int slot = current.slotOf(id);
+                Quest quest = current.values()[slot];
+                if (quest == null || quest.getStatus() != expected) {
+                    return false;
+                }
+                VALUES.setRelease(current.values(), slot, new Quest(quest.getId(), quest.getName(), next, quest.getReward()));
+                move(id, expected, next);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void move(long id, Status from, Status to) {
+            if (from == to) {
+                return;
+            }
+            if (from != null) {
+                byStatus[from.ordinal()].remove(id);
+                statusCounts.decrementAndGet(from.ordinal());
+            }
+            if (to != null) {
+                byStatus[to.ordinal()].add(id);
+                statusCounts.incrementAndGet(to.ordinal());
+            }
+        }
+
+        private static Table resize(Table old) {
+            Table resized = new Table(old.keys().length * 2);
+            for (int i = 0; i < old.keys().length; i++) {
+                Quest quest = old.values()[i];
+                if (quest != null) {
+                    int slot = resized.slotOf(old.keys()[i]);
+                    resized.keys()[slot] = old.keys()[i];
+                    resized.values()[slot] = quest;
+                }
+            }
+            return resized;
+        }
+    }
+}
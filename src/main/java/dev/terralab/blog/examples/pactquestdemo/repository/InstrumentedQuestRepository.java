@@ -0,0 +1,185 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a {@code quest.repository.calls} timer per method of the wrapped repository. The
+ * timers are registered up front, so a call costs two clock reads and a histogram update.
+ */
+public class InstrumentedQuestRepository implements QuestRepository {
+
+    public static final String CALLS = "quest.repository.calls";
+
+    private final QuestRepository delegate;
+    private final Timer findById;
+    private final Timer findAllById;
+    private final Timer findAll;
+    private final Timer findAllAfter;
+    private final Timer findAllByStatus;
+    private final Timer countByStatus;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer compareAndSetStatus;
+    private final Timer compareAndSetStatuses;
+    private final Timer maxId;
+    private final Timer version;
+
+    public InstrumentedQuestRepository(QuestRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findById = timer(registry, "findById");
+        this.findAllById = timer(registry, "findAllById");
+        this.findAll = timer(registry, "findAll");
+        this.findAllAfter = timer(registry, "findAllAfter");
+        this.findAllByStatus = timer(registry, "findAllByStatus");
+        this.countByStatus = timer(registry, "countByStatus");
+        this.save = timer(registry, "save");
+        this.saveAll = timer(registry, "saveAll");
+        this.compareAndSetStatus = timer(registry, "compareAndSetStatus");
+        this.compareAndSetStatuses = timer(registry, "compareAndSetStatuses");
+        this.maxId = timer(registry, "maxId");
+        this.version = timer(registry, "version");
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            findById.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllById(ids);
+        } finally {
+            findAllById.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllAfter(afterId, limit);
+        } finally {
+            findAllAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllByStatus(statuses);
+        } finally {
+            findAllByStatus.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countByStatus(status);
+        } finally {
+            countByStatus.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void save(Quest quest) {
+        long start = System.nanoTime();
+        try {
+            delegate.save(quest);
+        } finally {
+            save.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveAll(quests);
+        } finally {
+            saveAll.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        long start = System.nanoTime();
+        try {
+            return delegate.compareAndSetStatus(id, expected, next);
+        } finally {
+            compareAndSetStatus.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+        long start = System.nanoTime();
+        try {
+            return delegate.compareAndSetStatuses(transitions);
+        } finally {
+            compareAndSetStatuses.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long maxId() {
+        long start = System.nanoTime();
+        try {
+            return delegate.maxId();
+        } finally {
+            maxId.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int maxTextBytes() {
+        return delegate.maxTextBytes();
+    }
+
+    @Override
+    public long version() {
+        long start = System.nanoTime();
+        try {
+            return delegate.version();
+        } finally {
+            version.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, String method) {
+        return Timer.builder(CALLS)
+                .description("Latency of QuestRepository calls")
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,282 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.config.JpaRepositoryProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Stores quests through JPA, tuned for how {@link QuestRepository} is used: lookups by id are
+ * served from the second-level cache, list reads are streamed as projections with a fetch
+ * size instead of materializing managed entities, and writes are flushed as JDBC batches.
+ * Status changes rely on the entity version rather than a lock, so a stale read simply makes
+ * {@link #compareAndSetStatus} return {@code false}. {@link #save} and {@link #saveAll} are
+ * blind writes on purpose: they back creation and import, where a quest with an existing id
+ * replaces the stored one whatever its version.
+ * <p>
+ * The version reflects writes made through this instance only.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "quest.repository", name = "type", havingValue = "jpa")
+public class JpaQuestRepository implements QuestRepository {
+
+    private static final String SELECT_QUESTS = "select new " + Quest.class.getName()
+            + "(q.id, q.name, q.status, q.reward) from QuestEntity q";
+    private static final String MERGE_QUEST = "merge into quest q"
+            + " using (select cast(? as bigint) as id, cast(? as varchar(255)) as name,"
+            + " cast(? as varchar(255)) as status, cast(? as varchar(255)) as reward) s on q.id = s.id"
+            + " when matched then update set name = s.name, status = s.status, reward = s.reward, version = q.version + 1"
+            + " when not matched then insert (id, name, status, reward, version) values (s.id, s.name, s.status, s.reward, 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    private final int fetchSize;
+    private final AtomicLong version = new AtomicLong();
+
+    public JpaQuestRepository(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                              JpaRepositoryProperties properties) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = properties.batchSize();
+        this.fetchSize = properties.fetchSize();
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        return Optional.ofNullable(entityManager.find(QuestEntity.class, id)).map(QuestEntity::toQuest);
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return readOnlyTransaction.execute(tx -> entityManager.unwrap(Session.class)
+                .byMultipleIds(QuestEntity.class)
+                .multiLoad(List.copyOf(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .map(QuestEntity::toQuest)
+                .toList());
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        return readOnlyTransaction.execute(tx -> {
+            try (Stream<Quest> quests = entityManager.createQuery(SELECT_QUESTS + " order by q.id", Quest.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .getResultStream()) {
+                List<Quest> all = new ArrayList<>();
+                quests.forEach(all::add);
+                return all;
+            }
+        });
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        return readOnlyTransaction.execute(tx -> entityManager
+                .createQuery(SELECT_QUESTS + " where q.id > :after order by q.id", Quest.class)
+                .setParameter("after", afterId == null ? Long.MIN_VALUE : afterId)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        if (statuses.isEmpty()) {
+            return List.of();
+        }
+        return readOnlyTransaction.execute(tx -> entityManager
+                .createQuery(SELECT_QUESTS + " where q.status in :statuses order by q.id", Quest.class)
+                .setParameter("statuses", statuses)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultList());
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        return readOnlyTransaction.execute(tx -> entityManager
+                .createQuery("select count(q) from QuestEntity q where q.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult());
+    }
+
+    @Override
+    public void save(Quest quest) {
+        saveAll(List.of(quest));
+    }
+
+    /**
+     * Writes the quests with a JDBC-batched {@code MERGE} keyed by id, so neither the current
+     * rows nor managed entities are loaded first. Updates bump the version like an entity
+     * flush would.
+     */
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        if (quests.isEmpty()) {
+            return;
+        }
+        List<Quest> pending = List.copyOf(quests);
+        pending.forEach(quest -> Objects.requireNonNull(quest.getId(), "Quest id must not be null"));
+        transaction.executeWithoutResult(tx -> {
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            lockCachedQuests(session, pending);
+            session.doWork(connection -> {
+                try (PreparedStatement merge = connection.prepareStatement(MERGE_QUEST)) {
+                    for (int from = 0; from < pending.size(); from += batchSize) {
+                        for (Quest quest : pending.subList(from, Math.min(pending.size(), from + batchSize))) {
+                            merge.setLong(1, quest.getId());
+                            merge.setString(2, quest.getName());
+                            merge.setString(3, quest.getStatus() == null ? null : quest.getStatus().name());
+                            merge.setString(4, quest.getReward());
+                            merge.addBatch();
+                        }
+                        merge.executeBatch();
+                    }
+                }
+            });
+        });
+        version.incrementAndGet();
+    }
+
+    /**
+     * Soft-locks the quests' second-level cache entries until the transaction completes, as
+     * Hibernate does for the entity updates it flushes itself. While locked, and afterwards for
+     * sessions opened before the unlock, lookups miss the cache and cannot put the row they
+     * read back into it, so a {@link #findById} racing the {@code MERGE} never caches the old
+     * quest.
+     */
+    private static void lockCachedQuests(SessionImplementor session, List<Quest> quests) {
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(QuestEntity.class);
+        EntityDataAccess cache = persister.getCacheAccessStrategy();
+        if (cache == null) {
+            return;
+        }
+        List<Object> keys = new ArrayList<>(quests.size());
+        List<SoftLock> locks = new ArrayList<>(quests.size());
+        for (Quest quest : quests) {
+            Object key = cache.generateCacheKey(quest.getId(), persister, session.getFactory(), session.getTenantIdentifier());
+            keys.add(key);
+            locks.add(cache.lockItem(session, key, null));
+        }
+        session.getActionQueue().registerProcess((success, completed) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                cache.unlockItem(completed, keys.get(i), locks.get(i));
+            }
+        });
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        boolean updated;
+        try {
+            updated = Boolean.TRUE.equals(transaction.execute(tx -> {
+                QuestEntity entity = entityManager.find(QuestEntity.class, id);
+                if (entity == null || entity.getStatus() != expected) {
+                    return false;
+                }
+                entity.setStatus(next);
+                entityManager.flush();
+                return true;
+            }));
+        } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+            entityManagerFactory.getCache().evict(QuestEntity.class, id);
+            return false;
+        }
+        if (updated) {
+            version.incrementAndGet();
+        }
+        return updated;
+    }
+
+    /**
+     * Checks and updates all the quests in one transaction: the entities come from the
+     * second-level cache where possible, and the versioned updates are flushed as JDBC
+     * batches. If any of them loses a race, the transaction is rolled back and the
+     * transitions are retried one by one.
+     */
+    @Override
+    public Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+        if (transitions.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> updated;
+        try {
+            updated = transaction.execute(tx -> {
+                Session session = entityManager.unwrap(Session.class);
+                Set<Long> changed = new HashSet<>();
+                for (QuestEntity entity : session.byMultipleIds(QuestEntity.class).multiLoad(List.copyOf(transitions.keySet()))) {
+                    Transition transition = entity == null ? null : transitions.get(entity.getId());
+                    if (transition != null && entity.getStatus() == transition.expected()) {
+                        entity.setStatus(transition.next());
+                        changed.add(entity.getId());
+                    }
+                }
+                session.flush();
+                return changed;
+            });
+        } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+            transitions.keySet().forEach(id -> entityManagerFactory.getCache().evict(QuestEntity.class, id));
+            return QuestRepository.super.compareAndSetStatuses(transitions);
+        }
+        if (!updated.isEmpty()) {
+            version.incrementAndGet();
+        }
+        return updated;
+    }
+
+    @Override
+    public long maxId() {
+        return readOnlyTransaction.execute(tx -> entityManager
+                .createQuery("select coalesce(max(q.id), 0) from QuestEntity q", Long.class)
+                .getSingleResult());
+    }
+
+    /**
+     * Each text column holds {@link QuestEntity#TEXT_LENGTH} characters, so any name and reward
+     * that fit in that many bytes together can be stored.
+     */
+    @Override
+    public int maxTextBytes() {
+        return QuestEntity.TEXT_LENGTH;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+}
@@ -0,0 +1,99 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive longs with linear probing and backward-shift deletion.
+ * Not thread-safe; callers guard it with the lock of the structure it indexes.
+ */
+final class LongHashSet {
+
+    private long[] keys = new long[16];
+    private boolean[] used = new boolean[16];
+    private int size;
+
+    boolean add(long key) {
+        int slot = slotOf(key);
+        if (used[slot]) {
+            return false;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+            slot = slotOf(key);
+        }
+        keys[slot] = key;
+        used[slot] = true;
+        size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                hole = next;
+            }
+        }
+        used[hole] = false;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends the members to {@code into} starting at {@code offset} and returns the new end.
+     */
+    int copyInto(long[] into, int offset) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) {
+                into[offset++] = keys[slot];
+            }
+        }
+        return offset;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                int target = slotOf(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                used[target] = true;
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        long h = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        return (int) (h ^ (h >>> 33)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        long[] members = new long[size];
+        copyInto(members, 0);
+        return Arrays.toString(members);
+    }
+}
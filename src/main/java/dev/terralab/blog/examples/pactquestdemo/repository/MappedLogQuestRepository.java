@@ -0,0 +1,684 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties.FsyncPolicy;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Serves reads from an {@link InMemoryQuestRepository} index and makes every write durable
+ * by appending the written quest as a fixed-size record to a memory-mapped log. Once the log
+ * is filled past {@code compaction-threshold}, or completely, the index is written to a
+ * snapshot and the log starts over; on startup the snapshot is loaded and the log replayed
+ * on top of it.
+ * <p>
+ * Each record carries the generation of the snapshot it follows, the epoch (process start)
+ * it was written in and a CRC. Replay stops at the first record that is torn, belongs to an
+ * older generation or was written in an earlier epoch than the record before it, so records
+ * left behind a crash are never resurrected.
+ * <p>
+ * Appends are serialized by one lock. Depending on the {@link FsyncPolicy} a writer then
+ * waits for its record to reach the disk; writers waiting at the same time share one sync.
+ * Under {@code ALWAYS} a write is only published to the index, and so to reads, once it is
+ * durable; until then conditional updates see it in a table of unpublished writes. Under the
+ * other policies reads may observe a write before it is durable.
+ * <p>
+ * Compaction writes the snapshot from a view of the index taken under the lock, while writes
+ * go on appending to the log. The lock is only taken again to add the records appended in
+ * the meantime to the snapshot and to switch to the new generation.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "quest.repository", name = "type", havingValue = "mapped-log")
+public class MappedLogQuestRepository implements QuestRepository {
+
+    public static final int RECORD_SIZE = 128;
+    public static final String LOG_FILE = "quests.log";
+    public static final String SNAPSHOT_FILE = "quests.snapshot";
+
+    private static final int CHECKSUM = 0;
+    private static final int GENERATION = 4;
+    private static final int EPOCH = 12;
+    private static final int ID = 16;
+    private static final int STATUS = 24;
+    private static final int NAME_LENGTH = 25;
+    private static final int REWARD_LENGTH = 26;
+    private static final int TEXT = 27;
+    public static final int MAX_TEXT_BYTES = RECORD_SIZE - TEXT;
+
+    private static final int MAGIC = 0;
+    private static final int FORMAT = 4;
+    private static final int HEADER_RECORD_SIZE = 8;
+    private static final int HEADER_EPOCH = 12;
+    private static final int HEADER_GENERATION = 16;
+    private static final int HEADER_COUNT = 24;
+    private static final int LOG_MAGIC = 0x514c4f47;
+    private static final int SNAPSHOT_MAGIC = 0x51534e50;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_FIELD = 0xff;
+    private static final int BATCH_RECORDS = 65_536;
+    private static final Status[] STATUSES = Status.values();
+
+    private final InMemoryQuestRepository index = new InMemoryQuestRepository();
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int compactionSlots;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final CRC32C checksum = new CRC32C();
+    private final CRC32C snapshotChecksum = new CRC32C();
+    private final Map<Long, Quest> unpublished = new HashMap<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private final FileChannel logChannel;
+    private final MappedByteBuffer log;
+    private final int capacity;
+    private final int epoch;
+    private long generation;
+    private int position;
+    private volatile long highestId;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long appended;
+    private volatile long durable;
+
+    private final ScheduledExecutorService maintenance;
+
+    public MappedLogQuestRepository(MappedLogRepositoryProperties properties) throws IOException {
+        this.directory = properties.directory();
+        this.fsyncPolicy = properties.fsync();
+        Files.createDirectories(directory);
+        this.generation = loadSnapshot();
+
+        Path logFile = directory.resolve(LOG_FILE);
+        long logSize = Math.max(properties.logSize().toBytes(), Files.exists(logFile) ? Files.size(logFile) : 0);
+        logSize = Math.min(logSize, Integer.MAX_VALUE) / RECORD_SIZE * RECORD_SIZE;
+        this.capacity = (int) (logSize / RECORD_SIZE) - 1;
+        if (capacity < 1) {
+            throw new IllegalArgumentException("quest.repository.mapped-log.log-size must hold at least two records");
+        }
+        this.compactionSlots = (int) Math.max(1, Math.min(capacity, capacity * properties.compactionThreshold()));
+        this.logChannel = FileChannel.open(logFile, CREATE, READ, WRITE);
+        this.log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, logSize);
+        this.epoch = replayLog(logFile);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("quest-log-maintenance").daemon().factory());
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long interval = properties.fsyncInterval().toMillis();
+            maintenance.scheduleWithFixedDelay(() -> sync(appended), interval, interval, TimeUnit.MILLISECONDS);
+        }
+        long compactionInterval = properties.compactionInterval().toMillis();
+        maintenance.scheduleWithFixedDelay(this::compactIfNeeded, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        return index.findById(id);
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        return index.findAllById(ids);
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        return index.findAll();
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        return index.findAllAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        return index.findAllByStatus(statuses);
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        return index.countByStatus(status);
+    }
+
+    @Override
+    public void save(Quest quest) {
+        saveAll(List.of(quest));
+    }
+
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        if (quests.isEmpty()) {
+            return;
+        }
+        List<Quest> pending = new ArrayList<>(quests.size());
+        for (Quest quest : quests) {
+            pending.add(copyOf(quest));
+        }
+        ByteBuffer records = ByteBuffer.allocate(pending.size() * RECORD_SIZE);
+        for (int i = 0; i < pending.size(); i++) {
+            encode(pending.get(i), records, i * RECORD_SIZE);
+        }
+        List<Quest> staged = new ArrayList<>();
+        long sequence = 0;
+        int from = 0;
+        while (from < pending.size()) {
+            boolean full;
+            writeLock.lock();
+            try {
+                full = position == capacity;
+                if (!full) {
+                    int to = Math.min(pending.size(), from + capacity - position);
+                    append(records, from, to - from);
+                    stage(pending.subList(from, to), staged);
+                    sequence = appended;
+                    from = to;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            if (full) {
+                compact(capacity);
+            }
+        }
+        publish(sequence, staged);
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        List<Quest> staged = new ArrayList<>(1);
+        long sequence;
+        while (true) {
+            writeLock.lock();
+            try {
+                if (position < capacity) {
+                    Quest updated = appendTransition(id, expected, next);
+                    if (updated == null) {
+                        return false;
+                    }
+                    stage(List.of(updated), staged);
+                    sequence = appended;
+                    break;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            compact(capacity);
+        }
+        publish(sequence, staged);
+        return true;
+    }
+
+    /**
+     * Appends all the transitions under one lock and, under {@code ALWAYS}, waits for a
+     * single sync.
+     */
+    @Override
+    public Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+        List<Map.Entry<Long, Transition>> pending = List.copyOf(transitions.entrySet());
+        Set<Long> updated = new HashSet<>();
+        List<Quest> staged = new ArrayList<>();
+        long sequence = 0;
+        int next = 0;
+        while (next < pending.size()) {
+            writeLock.lock();
+            try {
+                List<Quest> changed = new ArrayList<>();
+                for (; next < pending.size() && position < capacity; next++) {
+                    Map.Entry<Long, Transition> entry = pending.get(next);
+                    Quest quest = appendTransition(entry.getKey(), entry.getValue().expected(), entry.getValue().next());
+                    if (quest != null) {
+                        changed.add(quest);
+                        updated.add(quest.getId());
+                    }
+                }
+                stage(changed, staged);
+                sequence = appended;
+            } finally {
+                writeLock.unlock();
+            }
+            if (next < pending.size()) {
+                compact(capacity);
+            }
+        }
+        publish(sequence, staged);
+        return updated;
+    }
+
+    @Override
+    public long maxId() {
+        return Math.max(index.maxId(), highestId);
+    }
+
+    @Override
+    public int maxTextBytes() {
+        return MAX_TEXT_BYTES;
+    }
+
+    @Override
+    public long version() {
+        return index.version();
+    }
+
+    /**
+     * Writes the current quests to a new snapshot and empties the log.
+     */
+    public void compact() {
+        compact(0);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        maintenance.shutdownNow();
+        compactionLock.lock();
+        try {
+            writeLock.lock();
+            try {
+                log.force();
+                logChannel.close();
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void append(ByteBuffer records, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            int offset = i * RECORD_SIZE;
+            seal(checksum, records, offset, generation, epoch);
+            log.put(slotOffset(position++), records, offset, RECORD_SIZE);
+        }
+        appended += count;
+    }
+
+    /**
+     * Appends the quest with its new status if it still has the expected one, and returns
+     * it; the caller holds the write lock and has checked that the log has room.
+     */
+    private Quest appendTransition(Long id, Status expected, Status next) {
+        Quest current = unpublished.get(id);
+        if (current == null) {
+            current = index.findById(id).orElse(null);
+        }
+        if (current == null || current.getStatus() != expected) {
+            return null;
+        }
+        Quest updated = new Quest(current.getId(), current.getName(), next, current.getReward());
+        Arrays.fill(scratch.array(), (byte) 0);
+        encode(updated, scratch, 0);
+        append(scratch, 0, 1);
+        return updated;
+    }
+
+    /**
+     * Makes appended quests visible: straight away, or under {@code ALWAYS} by parking them
+     * as unpublished until {@link #publish} has waited for the disk.
+     */
+    private void stage(List<Quest> quests, List<Quest> staged) {
+        long highest = highestId;
+        for (Quest quest : quests) {
+            highest = Math.max(highest, quest.getId());
+        }
+        highestId = highest;
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            index.saveAll(quests);
+            return;
+        }
+        for (Quest quest : quests) {
+            unpublished.put(quest.getId(), quest);
+            staged.add(quest);
+        }
+    }
+
+    /**
+     * Waits until the staged quests are durable and moves them to the index, skipping those
+     * that a later write has replaced in the meantime; that write publishes its own version.
+     */
+    private void publish(long sequence, List<Quest> staged) {
+        if (staged.isEmpty()) {
+            return;
+        }
+        try {
+            sync(sequence);
+        } finally {
+            writeLock.lock();
+            try {
+                List<Quest> latest = new ArrayList<>(staged.size());
+                for (Quest quest : staged) {
+                    if (unpublished.get(quest.getId()) == quest) {
+                        unpublished.remove(quest.getId());
+                        latest.add(quest);
+                    }
+                }
+                index.saveAll(latest);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void sync(long sequence) {
+        if (durable >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable < sequence) {
+                long target = appended;
+                log.force();
+                durable = target;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        try {
+            compact(compactionSlots);
+        } catch (UncheckedIOException e) {
+            // retried on the next run, or inline once the log is full
+        }
+    }
+
+    /**
+     * Compacts if the log holds at least {@code minimumPosition} records by the time the
+     * view is taken, so writers that found the log full do not compact it twice.
+     */
+    private void compact(int minimumPosition) {
+        compactionLock.lock();
+        try {
+            View view;
+            writeLock.lock();
+            try {
+                if (position < minimumPosition) {
+                    return;
+                }
+                view = new View(generation + 1, position, index.findAll(), List.copyOf(unpublished.values()));
+            } finally {
+                writeLock.unlock();
+            }
+            writeSnapshot(view);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void writeSnapshot(View view) {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BATCH_RECORDS * RECORD_SIZE);
+                writeFully(channel, buffer, 1);
+                long count = writeRecords(channel, buffer, view.quests(), view.generation())
+                        + writeRecords(channel, buffer, view.unpublished(), view.generation());
+                channel.force(false);
+
+                writeLock.lock();
+                count += writeRecords(channel, buffer, appendedSince(view.position()), view.generation());
+                writeHeader(buffer, SNAPSHOT_MAGIC, view.generation(), 0, count);
+                buffer.clear().limit(RECORD_SIZE);
+                for (long at = 0; buffer.hasRemaining(); ) {
+                    at += channel.write(buffer, at);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE), ATOMIC_MOVE, REPLACE_EXISTING);
+            forceDirectory();
+            generation = view.generation();
+            position = 0;
+            writeLogHeader();
+            syncLock.lock();
+            try {
+                log.force(0, RECORD_SIZE);
+                durable = appended;
+            } finally {
+                syncLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write quest snapshot", e);
+        } finally {
+            if (writeLock.isHeldByCurrentThread()) {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private long writeRecords(FileChannel channel, ByteBuffer buffer, List<Quest> quests, long generation) throws IOException {
+        int buffered = 0;
+        for (Quest quest : quests) {
+            if (buffered == BATCH_RECORDS) {
+                writeFully(channel, buffer, buffered);
+                buffered = 0;
+            }
+            int offset = buffered++ * RECORD_SIZE;
+            encode(quest, buffer, offset);
+            seal(snapshotChecksum, buffer, offset, generation, 0);
+        }
+        writeFully(channel, buffer, buffered);
+        return quests.size();
+    }
+
+    private List<Quest> appendedSince(int from) {
+        List<Quest> quests = new ArrayList<>(position - from);
+        for (int slot = from; slot < position; slot++) {
+            log.get(slotOffset(slot), scratch.array());
+            quests.add(decode(scratch, 0, generation));
+        }
+        return quests;
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 1;
+        }
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BATCH_RECORDS * RECORD_SIZE);
+            buffer.limit(RECORD_SIZE);
+            readFully(channel, buffer);
+            if (buffer.getInt(MAGIC) != SNAPSHOT_MAGIC || buffer.getInt(FORMAT) != FORMAT_VERSION
+                    || buffer.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+                throw new IOException("Not a quest snapshot: " + file);
+            }
+            long snapshotGeneration = buffer.getLong(HEADER_GENERATION);
+            long remaining = buffer.getLong(HEADER_COUNT);
+            List<Quest> batch = new ArrayList<>(BATCH_RECORDS);
+            while (remaining > 0) {
+                int records = (int) Math.min(remaining, BATCH_RECORDS);
+                buffer.clear().limit(records * RECORD_SIZE);
+                readFully(channel, buffer);
+                for (int i = 0; i < records; i++) {
+                    Quest quest = decode(buffer, i * RECORD_SIZE, snapshotGeneration);
+                    if (quest == null) {
+                        throw new IOException("Corrupt record in quest snapshot: " + file);
+                    }
+                    batch.add(quest);
+                }
+                index.saveAll(batch);
+                batch.clear();
+                remaining -= records;
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    private int replayLog(Path file) throws IOException {
+        boolean formatted = log.getInt(MAGIC) == LOG_MAGIC;
+        if (formatted && (log.getInt(FORMAT) != FORMAT_VERSION || log.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE)) {
+            throw new IOException("Unsupported quest log format: " + file);
+        }
+        if (!formatted && log.getInt(MAGIC) != 0) {
+            throw new IOException("Not a quest log: " + file);
+        }
+        int previousEpoch = formatted ? log.getInt(HEADER_EPOCH) : 0;
+        List<Quest> batch = new ArrayList<>(BATCH_RECORDS);
+        int recordEpoch = 0;
+        int slot = 0;
+        while (slot < capacity) {
+            log.get(slotOffset(slot), scratch.array());
+            Quest quest = decode(scratch, 0, generation);
+            if (quest == null || scratch.getInt(EPOCH) < recordEpoch) {
+                break;
+            }
+            recordEpoch = scratch.getInt(EPOCH);
+            batch.add(quest);
+            slot++;
+            if (batch.size() == BATCH_RECORDS) {
+                index.saveAll(batch);
+                batch.clear();
+            }
+        }
+        index.saveAll(batch);
+        position = slot;
+        int currentEpoch = previousEpoch + 1;
+        writeHeader(log, LOG_MAGIC, generation, currentEpoch, 0);
+        log.force(0, RECORD_SIZE);
+        return currentEpoch;
+    }
+
+    private void writeLogHeader() {
+        writeHeader(log, LOG_MAGIC, generation, epoch, 0);
+    }
+
+    private static void writeHeader(ByteBuffer buffer, int magic, long generation, int epoch, long count) {
+        buffer.putInt(MAGIC, magic);
+        buffer.putInt(FORMAT, FORMAT_VERSION);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_EPOCH, epoch);
+        buffer.putLong(HEADER_GENERATION, generation);
+        buffer.putLong(HEADER_COUNT, count);
+    }
+
+    private static void encode(Quest quest, ByteBuffer buffer, int offset) {
+        long id = Objects.requireNonNull(quest.getId(), "Quest id must not be null");
+        byte[] name = utf8(quest.getName());
+        byte[] reward = utf8(quest.getReward());
+        int nameLength = name == null ? 0 : name.length;
+        if (nameLength + (reward == null ? 0 : reward.length) > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Name and reward of quest " + id + " exceed " + MAX_TEXT_BYTES + " bytes");
+        }
+        buffer.putLong(offset + ID, id);
+        buffer.put(offset + STATUS, (byte) (quest.getStatus() == null ? NULL_FIELD : quest.getStatus().ordinal()));
+        buffer.put(offset + NAME_LENGTH, (byte) (name == null ? NULL_FIELD : name.length));
+        buffer.put(offset + REWARD_LENGTH, (byte) (reward == null ? NULL_FIELD : reward.length));
+        if (name != null) {
+            buffer.put(offset + TEXT, name);
+        }
+        if (reward != null) {
+            buffer.put(offset + TEXT + nameLength, reward);
+        }
+    }
+
+    private static void seal(CRC32C checksum, ByteBuffer buffer, int offset, long generation, int epoch) {
+        buffer.putLong(offset + GENERATION, generation);
+        buffer.putInt(offset + EPOCH, epoch);
+        checksum.reset();
+        checksum.update(buffer.array(), offset + GENERATION, RECORD_SIZE - GENERATION);
+        buffer.putInt(offset + CHECKSUM, (int) checksum.getValue());
+    }
+
+    private Quest decode(ByteBuffer buffer, int offset, long expectedGeneration) {
+        if (buffer.getLong(offset + GENERATION) != expectedGeneration) {
+            return null;
+        }
+        checksum.reset();
+        checksum.update(buffer.array(), offset + GENERATION, RECORD_SIZE - GENERATION);
+        if (buffer.getInt(offset + CHECKSUM) != (int) checksum.getValue()) {
+            return null;
+        }
+        int status = buffer.get(offset + STATUS) & 0xff;
+        int nameLength = buffer.get(offset + NAME_LENGTH) & 0xff;
+        int rewardLength = buffer.get(offset + REWARD_LENGTH) & 0xff;
+        int rewardOffset = offset + TEXT + (nameLength == NULL_FIELD ? 0 : nameLength);
+        return new Quest(
+                buffer.getLong(offset + ID),
+                text(buffer, offset + TEXT, nameLength),
+                status == NULL_FIELD ? null : STATUSES[status],
+                text(buffer, rewardOffset, rewardLength));
+    }
+
+    private static Quest copyOf(Quest quest) {
+        return new Quest(quest.getId(), quest.getName(), quest.getStatus(), quest.getReward());
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer, int offset, int length) {
+        return length == NULL_FIELD ? null : new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int slotOffset(int slot) {
+        return (slot + 1) * RECORD_SIZE;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, int records) throws IOException {
+        buffer.clear().limit(records * RECORD_SIZE);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        Arrays.fill(buffer.array(), (byte) 0);
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of quest snapshot");
+            }
+        }
+    }
+
+    /**
+     * The quests a snapshot starts from: the index and the unpublished writes as of
+     * {@code position}, when the view was taken under the write lock.
+     */
+    private record View(long generation, int position, List<Quest> quests, List<Quest> unpublished) {
+    }
+
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can sync a directory; the snapshot itself is already on disk
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+@Entity
+@Table(name = "quest", indexes = @Index(name = "quest_status_idx", columnList = "status"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = QuestEntity.CACHE_REGION)
+@Getter
+@Setter
+@NoArgsConstructor
+public class QuestEntity {
+
+    public static final String CACHE_REGION = "quest";
+    public static final int TEXT_LENGTH = 255;
+
+    @Id
+    private Long id;
+
+    @Column(length = TEXT_LENGTH)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(length = TEXT_LENGTH)
+    private String reward;
+
+    @Version
+    private long version;
+
+    public static QuestEntity from(Quest quest) {
+        QuestEntity entity = new QuestEntity();
+        entity.setId(quest.getId());
+        entity.apply(quest);
+        return entity;
+    }
+
+    public void apply(Quest quest) {
+        this.name = quest.getName();
+        this.status = quest.getStatus();
+        this.reward = quest.getReward();
+    }
+
+    public Quest toQuest() {
+        return new Quest(id, name, status, reward);
+    }
+}
@@ -1,17 +1,66 @@
 package dev.terralab.blog.examples.pactquestdemo.repository;
 
 import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface QuestRepository {
      
     Optional<Quest> findById(Long id);
+
+    List<Quest> findAllById(Collection<Long> ids);
     
     List<Quest> findAll();
+
+    List<Quest> findAllAfter(Long afterId, int limit);
+
+    List<Quest> findAllByStatus(Set<Status> statuses);
+
+    long countByStatus(Status status);
     
     void save(Quest quest);
+
+    void saveAll(Collection<Quest> quests);
+
+    boolean compareAndSetStatus(Long id, Status expected, Status next);
+
+    /**
+     * Applies every transition whose quest still has the expected status and returns the ids
+     * of the quests that were updated. Implementations that can should do this in one round
+     * trip; the default applies the transitions one by one.
+     */
+    default Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+        Set<Long> updated = new HashSet<>();
+        transitions.forEach((id, transition) -> {
+            if (compareAndSetStatus(id, transition.expected(), transition.next())) {
+                updated.add(id);
+            }
+        });
+        return updated;
+    }
+
+    /**
+     * Returns the highest stored quest id, or 0 when there are no quests.
+     */
+    long maxId();
+
+    /**
+     * Returns the most UTF-8 bytes that the name and reward of one quest may take together.
+     */
+    default int maxTextBytes() {
+        return Integer.MAX_VALUE;
+    }
+
+    long version();
+
+    record Transition(Status expected, Status next) {
+    }
 }
@@ -0,0 +1,487 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.config.WriteBehindProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.WriteBehindProperties.Durability;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.exception.StorageBacklogException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sits in front of the configured repository: writes are applied to an in-memory copy, which
+ * serves every read, and the ids they touched are marked dirty. A flusher thread writes the
+ * current state of the dirty quests to the backing repository in batches, so any number of
+ * updates to one quest between two flushes cost a single write. The lock only guards that
+ * bookkeeping; the writes themselves run concurrently against the in-memory copy.
+ * <p>
+ * At most {@code max-pending} quests are dirty or being flushed; writes that would exceed
+ * that wait up to {@code max-wait} for the flusher and then fail with
+ * {@link StorageBacklogException}. When a write returns depends on the configured
+ * {@link Durability}. Pending quests are flushed on shutdown.
+ * <p>
+ * A failed flush is retried. Quests that are still in a failing batch after
+ * {@code max-retries} flushes are written one by one, and those that fail again are parked:
+ * they keep their in-memory state, are no longer retried and are counted by the
+ * {@value #PARKED} gauge, until they are written again.
+ */
+@Slf4j
+@Repository
+@Primary
+@ConditionalOnProperty(prefix = "quest.repository.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindQuestRepository implements QuestRepository {
+
+    public static final String PENDING = "quest.write-behind.pending";
+    public static final String LAG = "quest.write-behind.lag";
+    public static final String FLUSHES = "quest.write-behind.flushes";
+    public static final String COALESCED = "quest.write-behind.coalesced";
+    public static final String FAILURES = "quest.write-behind.failures";
+    public static final String PARKED = "quest.write-behind.parked";
+
+    private static final long NOT_WRITTEN = -1;
+
+    private final QuestRepository backing;
+    private final InMemoryQuestRepository current = new InMemoryQuestRepository();
+    private final Durability durability;
+    private final long flushInterval;
+    private final int batchSize;
+    private final int maxPending;
+    private final long maxWait;
+    private final int maxRetries;
+    private final long shutdownTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWork = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private LinkedHashMap<Long, Long> dirty = new LinkedHashMap<>();
+    private final Set<Long> parked = new HashSet<>();
+    private int reserved;
+    private int inFlight;
+    private long inFlightSince;
+    private long enqueued;
+    private long flushedSequence;
+    private boolean flushRequested;
+    private boolean running = true;
+
+    private final Timer flushes;
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Thread flusher;
+    private final Map<Long, Integer> attempts = new HashMap<>();
+
+    public WriteBehindQuestRepository(QuestRepository backing, WriteBehindProperties properties, MeterRegistry registry) {
+        this.backing = backing;
+        this.durability = properties.durability();
+        this.flushInterval = properties.flushInterval().toNanos();
+        this.batchSize = properties.batchSize();
+        this.maxPending = properties.maxPending();
+        this.maxWait = properties.maxWait().toNanos();
+        this.maxRetries = properties.maxRetries();
+        this.shutdownTimeout = properties.shutdownTimeout().toMillis();
+        current.saveAll(backing.findAll());
+
+        Gauge.builder(PENDING, this, WriteBehindQuestRepository::pending)
+                .description("Quests changed in memory but not yet written to the backing repository")
+                .register(registry);
+        Gauge.builder(LAG, this, WriteBehindQuestRepository::lagSeconds)
+                .description("Age of the oldest change not yet written to the backing repository")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder(PARKED, this, WriteBehindQuestRepository::parked)
+                .description("Quests whose changes could not be written to the backing repository and are no longer retried")
+                .register(registry);
+        this.flushes = Timer.builder(FLUSHES).description("Writes of dirty quests to the backing repository").register(registry);
+        this.coalesced = Counter.builder(COALESCED).description("Updates merged into a quest that was already pending").register(registry);
+        this.failures = Counter.builder(FAILURES).description("Flushes that failed and will be retried").register(registry);
+        this.flusher = Thread.ofPlatform().name("quest-write-behind").daemon().start(this::flushLoop);
+    }
+
+    @Override
+    public Optional<Quest> findById(Long id) {
+        return current.findById(id);
+    }
+
+    @Override
+    public List<Quest> findAllById(Collection<Long> ids) {
+        return current.findAllById(ids);
+    }
+
+    @Override
+    public List<Quest> findAll() {
+        return current.findAll();
+    }
+
+    @Override
+    public List<Quest> findAllAfter(Long afterId, int limit) {
+        return current.findAllAfter(afterId, limit);
+    }
+
+    @Override
+    public List<Quest> findAllByStatus(Set<Status> statuses) {
+        return current.findAllByStatus(statuses);
+    }
+
+    @Override
+    public long countByStatus(Status status) {
+        return current.countByStatus(status);
+    }
+
+    @Override
+    public void save(Quest quest) {
+        Long id = Objects.requireNonNull(quest.getId(), "Quest id must not be null");
+        List<Long> ids = List.of(id);
+        awaitFlushed(ids, apply(ids, () -> {
+            current.save(quest);
+            return true;
+        }));
+    }
+
+    @Override
+    public void saveAll(Collection<Quest> quests) {
+        if (quests.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(quests.size());
+        for (Quest quest : quests) {
+            ids.add(Objects.requireNonNull(quest.getId(), "Quest id must not be null"));
+        }
+        awaitFlushed(ids, apply(ids, () -> {
+            current.saveAll(quests);
+            return true;
+        }));
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Long id, Status expected, Status next) {
+        List<Long> ids = List.of(id);
+        long sequence = apply(ids, () -> current.compareAndSetStatus(id, expected, next));
+        if (sequence == NOT_WRITTEN) {
+            return false;
+        }
+        awaitFlushed(ids, sequence);
+        return true;
+    }
+
+    /**
+     * Applies the transitions together, so under {@code FLUSHED} the batch waits for one
+     * flush rather than one per quest.
+     */
+    @Override
+    public Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+        if (transitions.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> updated = new HashSet<>();
+        long sequence = apply(transitions.keySet(), () -> {
+            updated.addAll(current.compareAndSetStatuses(transitions));
+            return !updated.isEmpty();
+        });
+        awaitFlushed(updated, sequence);
+        return updated;
+    }
+
+    @Override
+    public long maxId() {
+        return current.maxId();
+    }
+
+    @Override
+    public int maxTextBytes() {
+        return backing.maxTextBytes();
+    }
+
+    @Override
+    public long version() {
+        return current.version();
+    }
+
+    public int pending() {
+        lock.lock();
+        try {
+            return dirty.size() + inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int parked() {
+        lock.lock();
+        try {
+            return parked.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double lagSeconds() {
+        lock.lock();
+        try {
+            long oldest = inFlight > 0 ? inFlightSince : Long.MAX_VALUE;
+            if (!dirty.isEmpty()) {
+                oldest = Math.min(oldest, dirty.firstEntry().getValue());
+            }
+            return oldest == Long.MAX_VALUE ? 0 : (System.nanoTime() - oldest) / 1e9;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            pendingWork.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(shutdownTimeout);
+        if (flusher.isAlive()) {
+            flusher.interrupt();
+            flusher.join();
+        }
+        int lost = pending() + parked();
+        if (lost > 0) {
+            log.warn("Shut down with {} quest changes not written to the backing repository", lost);
+        }
+    }
+
+    /**
+     * Applies the write to the in-memory copy and marks the ids dirty, returning the write's
+     * sequence number, or {@link #NOT_WRITTEN} if the write did not change anything. Room for
+     * the ids is reserved under the lock first, the write itself runs outside it. Marking
+     * dirty after writing means a flush that takes the ids always reads this write or a later
+     * one.
+     */
+    private long apply(Collection<Long> ids, BooleanSupplier write) {
+        lock.lock();
+        try {
+            awaitCapacity(ids);
+            reserved += ids.size();
+        } finally {
+            lock.unlock();
+        }
+        boolean written = false;
+        try {
+            written = write.getAsBoolean();
+        } finally {
+            if (!written) {
+                lock.lock();
+                try {
+                    reserved -= ids.size();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return written ? markDirty(ids) : NOT_WRITTEN;
+    }
+
+    private long markDirty(Collection<Long> ids) {
+        lock.lock();
+        try {
+            reserved -= ids.size();
+            long now = System.nanoTime();
+            for (Long id : ids) {
+                if (dirty.putIfAbsent(id, now) != null) {
+                    coalesced.increment();
+                }
+                parked.remove(id);
+            }
+            if (dirty.size() >= batchSize) {
+                pendingWork.signal();
+            }
+            notFull.signalAll();
+            return ++enqueued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitCapacity(Collection<Long> ids) {
+        long remaining = maxWait;
+        while (dirty.size() + inFlight + reserved > 0 && dirty.size() + inFlight + reserved + newIds(ids) > maxPending) {
+            if (remaining <= 0) {
+                throw new StorageBacklogException("Quest store is not keeping up with writes");
+            }
+            flushRequested = true;
+            pendingWork.signal();
+            try {
+                remaining = notFull.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageBacklogException("Interrupted while waiting for the quest store");
+            }
+        }
+    }
+
+    private int newIds(Collection<Long> ids) {
+        int count = 0;
+        for (Long id : ids) {
+            if (!dirty.containsKey(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void awaitFlushed(Collection<Long> ids, long sequence) {
+        if (durability != Durability.FLUSHED || sequence == NOT_WRITTEN) {
+            return;
+        }
+        lock.lock();
+        try {
+            flushRequested = true;
+            pendingWork.signal();
+            long remaining = maxWait;
+            while (flushedSequence < sequence) {
+                if (remaining <= 0) {
+                    throw new StorageBacklogException("Quest change is applied but the quest store did not confirm it in time");
+                }
+                try {
+                    remaining = flushed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageBacklogException("Interrupted while waiting for the quest store");
+                }
+            }
+            for (Long id : ids) {
+                if (parked.contains(id)) {
+                    throw new StorageBacklogException("Quest change is applied but could not be written to the quest store");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Map<Long, Long> batch;
+            long sequence;
+            lock.lock();
+            try {
+                while (running && dirty.isEmpty()) {
+                    pendingWork.await();
+                }
+                if (running && !flushRequested && dirty.size() < batchSize) {
+                    pendingWork.awaitNanos(flushInterval);
+                }
+                if (dirty.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = dirty;
+                dirty = new LinkedHashMap<>();
+                inFlight = batch.size();
+                inFlightSince = batch.values().iterator().next();
+                sequence = enqueued;
+                flushRequested = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (!flush(batch, sequence)) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.max(flushInterval, TimeUnit.MILLISECONDS.toNanos(10)));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, returning whether all of it was written or parked. Ids from failed
+     * chunks go back to the dirty set, except those that failed {@code max-retries} times,
+     * which get one last try on their own before they are parked.
+     */
+    private boolean flush(Map<Long, Long> batch, long sequence) {
+        long start = System.nanoTime();
+        List<Long> ids = new ArrayList<>(batch.keySet());
+        List<Long> failed = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            try {
+                backing.saveAll(current.findAllById(chunk));
+                chunk.forEach(attempts::remove);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Writing {} quests to the backing repository failed", chunk.size(), e);
+                failed.addAll(chunk);
+            }
+        }
+        List<Long> retry = new ArrayList<>(failed.size());
+        List<Long> parking = new ArrayList<>();
+        for (Long id : failed) {
+            if (attempts.merge(id, 1, Integer::sum) < maxRetries) {
+                retry.add(id);
+            } else if (!writeAlone(id)) {
+                parking.add(id);
+            }
+        }
+        if (failed.isEmpty()) {
+            flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!parking.isEmpty()) {
+            log.error("Parked {} quests that could not be written to the backing repository after {} attempts: {}",
+                    parking.size(), maxRetries, parking);
+        }
+        lock.lock();
+        try {
+            parked.addAll(parking);
+            if (retry.isEmpty()) {
+                flushedSequence = sequence;
+                flushed.signalAll();
+            } else {
+                LinkedHashMap<Long, Long> requeued = new LinkedHashMap<>();
+                retry.forEach(id -> requeued.put(id, batch.get(id)));
+                dirty.forEach((id, since) -> requeued.merge(id, since, Math::min));
+                dirty = requeued;
+            }
+            inFlight = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return retry.isEmpty();
+    }
+
+    private boolean writeAlone(Long id) {
+        attempts.remove(id);
+        try {
+            current.findById(id).ifPresent(backing::save);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
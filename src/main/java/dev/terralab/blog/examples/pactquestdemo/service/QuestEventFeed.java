@@ -0,0 +1,251 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestEventFeedProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestEventDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Retains the most recent status transitions in a ring buffer and fans them out to
+ * server-sent event subscribers. Publishing only appends to the ring; a dispatcher thread
+ * wakes the subscribers, and each subscriber is drained on its own virtual thread so a slow
+ * connection never holds up a PUT or another subscriber. Subscribers that fall more than
+ * {@code quest.events.max-lag} events behind are disconnected and can resume from their
+ * last event id while it is still in the ring. A subscriber whose connection has not taken
+ * an event within {@code quest.events.send-timeout} is dropped by the dispatcher, which
+ * completes its emitter with an error and interrupts its sender.
+ */
+@Component
+public class QuestEventFeed {
+
+    public static final String STATUS_CHANGED = "quest-status-changed";
+    public static final String RESET = "reset";
+
+    private static final int SEND_BATCH_SIZE = 256;
+
+    private final QuestEventDto[] buffer;
+    private final int maxLag;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private volatile long lastSequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public QuestEventFeed(QuestEventFeedProperties properties) {
+        this.buffer = new QuestEventDto[properties.bufferSize()];
+        this.maxLag = Math.min(properties.maxLag(), properties.bufferSize());
+        this.timeoutMillis = properties.timeout().toMillis();
+        this.sendTimeoutNanos = properties.sendTimeout().toNanos();
+        this.dispatcher = Thread.ofPlatform().name("quest-event-dispatcher").daemon().start(this::dispatch);
+    }
+
+    @EventListener
+    public void onQuestStatusChanged(QuestStatusChangedEvent event) {
+        lock.lock();
+        try {
+            long sequence = lastSequence + 1;
+            buffer[slot(sequence)] = new QuestEventDto(sequence, event.id(), event.from().name(), event.to().name());
+            lastSequence = sequence;
+            published.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SseEmitter subscribe(Long since) {
+        return subscribe(since, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(Long since, SseEmitter emitter) {
+        long last = lastSequence;
+        boolean resumable = since != null && since <= last && eventsAfter(since, 0) != null;
+        Subscriber subscriber = new Subscriber(emitter, resumable ? since : last, since != null && !resumable);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Returns up to {@code max} retained events following {@code sequence}, or {@code null}
+     * when some of them have already been overwritten.
+     */
+    List<QuestEventDto> eventsAfter(long sequence, int max) {
+        lock.lock();
+        try {
+            if (sequence < lastSequence - buffer.length) {
+                return null;
+            }
+            long until = Math.min(lastSequence, sequence + max);
+            List<QuestEventDto> events = new ArrayList<>((int) Math.max(0, until - sequence));
+            for (long next = sequence + 1; next <= until; next++) {
+                events.add(buffer[slot(next)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Wakes the subscribers after each publish, and at least twice per send timeout to drop
+     * the ones stuck in a send.
+     */
+    private void dispatch() {
+        long dispatched = 0;
+        while (running) {
+            lock.lock();
+            try {
+                long wait = Math.max(1, sendTimeoutNanos / 2);
+                while (running && lastSequence == dispatched && wait > 0) {
+                    wait = published.awaitNanos(wait);
+                }
+                dispatched = lastSequence;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            long now = System.nanoTime();
+            for (Subscriber subscriber : subscribers) {
+                long sendingSince = subscriber.sendingSince;
+                if (sendingSince != 0 && now - sendingSince > sendTimeoutNanos) {
+                    expire(subscriber);
+                } else {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        subscriber.sender = Thread.currentThread();
+        try {
+            if (subscriber.resetPending) {
+                subscriber.resetPending = false;
+                send(subscriber, SseEmitter.event().name(RESET).data(Map.of("sequence", subscriber.cursor), MediaType.APPLICATION_JSON));
+            }
+            while (true) {
+                List<QuestEventDto> events = lastSequence - subscriber.cursor > maxLag ? null : eventsAfter(subscriber.cursor, SEND_BATCH_SIZE);
+                if (events == null) {
+                    disconnect(subscriber);
+                    return;
+                }
+                if (events.isEmpty()) {
+                    subscriber.scheduled.set(false);
+                    if (lastSequence == subscriber.cursor || !subscriber.scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                for (QuestEventDto event : events) {
+                    send(subscriber, SseEmitter.event()
+                            .id(Long.toString(event.sequence()))
+                            .name(STATUS_CHANGED)
+                            .data(event, MediaType.APPLICATION_JSON));
+                    subscriber.cursor = event.sequence();
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.sender = null;
+            Thread.interrupted();
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+
+    private void expire(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.emitter.completeWithError(new IOException("Subscriber did not accept an event within the send timeout"));
+            Thread sender = subscriber.sender;
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % buffer.length);
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long cursor;
+        private volatile boolean resetPending;
+        private volatile long sendingSince;
+        private volatile Thread sender;
+
+        Subscriber(SseEmitter emitter, long cursor, boolean resetPending) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.resetPending = resetPending;
+        }
+    }
+}
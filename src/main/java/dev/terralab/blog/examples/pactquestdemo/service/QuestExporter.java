@@ -0,0 +1,225 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestExportProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds point-in-time exports of all quests as gzip-compressed NDJSON, one
+ * {@link QuestResponseDto} per line in id order, for bulk consumers that would otherwise pull
+ * {@code GET /quest}. An export is written by a single background thread from one
+ * {@link QuestRepository#findAll()} read, bypassing the fragment and response caches and the
+ * parallel serialization pool that serve live requests, and compressed at the fastest level.
+ * {@code max-quests-per-second} can throttle it further.
+ * <p>
+ * A file is written under a temporary name and moved into place once complete, so a file with
+ * the export name is always whole. The newest {@code retain} completed exports are kept, so a
+ * download of the previous export can still finish after a new one completes. Exports do not
+ * survive a restart: leftover files are removed at startup.
+ */
+@Slf4j
+@Component
+public class QuestExporter {
+
+    public static final String FILE_PREFIX = "quests-";
+    public static final String FILE_SUFFIX = ".ndjson.gz";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int THROTTLE_STEP = 1000;
+
+    public enum State {RUNNING, COMPLETED, FAILED}
+
+    public record Export(String id, State state, Instant startedAt, Instant completedAt, long quests, long bytes,
+                         Path file, String error) {
+    }
+
+    private final QuestRepository repository;
+    private final ObjectWriter writer;
+    private final Path directory;
+    private final int retain;
+    private final long nanosPerQuest;
+    private final ScheduledExecutorService executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Export> completed = new ArrayDeque<>();
+    private Export latest;
+    private long lastId;
+
+    public QuestExporter(QuestRepository repository, ObjectMapper objectMapper, QuestExportProperties properties) throws IOException {
+        this.repository = repository;
+        this.writer = objectMapper.writerFor(QuestResponseDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.directory = properties.directory();
+        this.retain = Math.max(1, properties.retain());
+        this.nanosPerQuest = properties.maxQuestsPerSecond() > 0 ? TimeUnit.SECONDS.toNanos(1) / properties.maxQuestsPerSecond() : 0;
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("quest-export").daemon().factory());
+        deleteLeftovers();
+        long interval = properties.interval().toMillis();
+        if (interval > 0) {
+            executor.scheduleWithFixedDelay(this::start, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts a new export, or returns the running one.
+     */
+    public Export start() {
+        lock.lock();
+        try {
+            if (latest != null && latest.state() == State.RUNNING) {
+                return latest;
+            }
+            Instant now = Instant.now();
+            lastId = Math.max(lastId + 1, now.toEpochMilli());
+            Export export = new Export(Long.toString(lastId), State.RUNNING, now, null, 0, 0, null, null);
+            latest = export;
+            executor.execute(() -> run(export));
+            return export;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Export> latest() {
+        lock.lock();
+        try {
+            return Optional.ofNullable(latest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Export> latestCompleted() {
+        lock.lock();
+        try {
+            return Optional.ofNullable(completed.peekFirst());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(Export export) {
+        Path file = directory.resolve(FILE_PREFIX + export.id() + FILE_SUFFIX);
+        Path temporary = directory.resolve(file.getFileName() + TEMPORARY_SUFFIX);
+        Export done;
+        try {
+            Files.createDirectories(directory);
+            long quests = write(temporary);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            done = new Export(export.id(), State.COMPLETED, export.startedAt(), Instant.now(), quests, Files.size(file), file, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Quest export {} failed", export.id(), e);
+            deleteQuietly(temporary);
+            done = new Export(export.id(), State.FAILED, export.startedAt(), Instant.now(), 0, 0, null, e.toString());
+        }
+
+        List<Export> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            latest = done;
+            if (done.state() == State.COMPLETED) {
+                completed.addFirst(done);
+                while (completed.size() > retain) {
+                    expired.add(completed.removeLast());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Export old : expired) {
+            deleteQuietly(old.file());
+        }
+    }
+
+    private long write(Path file) throws IOException {
+        List<Quest> quests = repository.findAll();
+        long start = System.nanoTime();
+        long written = 0;
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }; JsonGenerator generator = writer.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            for (Quest quest : quests) {
+                writer.writeValue(generator, QuestResponseDto.from(quest));
+                generator.writeRaw('\n');
+                if (++written % THROTTLE_STEP == 0) {
+                    throttle(start, written);
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        return written;
+    }
+
+    private void throttle(long start, long written) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export interrupted");
+        }
+        long wait = start + written * nanosPerQuest - System.nanoTime();
+        if (nanosPerQuest > 0 && wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export interrupted");
+            }
+        }
+    }
+
+    private void deleteLeftovers() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX + "{," + TEMPORARY_SUFFIX + "}")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
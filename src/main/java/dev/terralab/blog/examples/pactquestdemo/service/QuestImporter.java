@@ -0,0 +1,319 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestImportProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportErrorDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportReportDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportRowDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidRequestException;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports quests from an NDJSON or CSV request body. The body is read one line at a time and
+ * valid rows are stored in batches of {@code batch-size} quests, so memory use does not grow
+ * with the size of the upload. Rows that fail validation are skipped and reported with their
+ * line number; the rest of the import carries on.
+ * <p>
+ * Each NDJSON line is an object with {@code id}, {@code name}, {@code status} and
+ * {@code reward} fields. A CSV body starts with a header naming its columns, of which only
+ * {@code name} is required; empty CSV fields are read as missing. Rows without an id are
+ * given the next free ones, and rows with an id replace the stored quest with that id.
+ */
+@Component
+public class QuestImporter {
+
+    public enum Format {NDJSON, CSV}
+
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private final QuestService questService;
+    private final QuestMetrics metrics;
+    private final ObjectReader rowReader;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int maxLineLength;
+
+    public QuestImporter(QuestService questService, QuestMetrics metrics, ObjectMapper objectMapper, QuestImportProperties properties) {
+        this.questService = questService;
+        this.metrics = metrics;
+        this.rowReader = objectMapper.readerFor(QuestImportRowDto.class);
+        this.batchSize = properties.batchSize();
+        this.maxErrors = properties.maxErrors();
+        this.maxLineLength = properties.maxLineLength();
+    }
+
+    public QuestImportReportDto importQuests(InputStream body, Format format) throws IOException {
+        long start = System.nanoTime();
+        Run run = new Run();
+        try {
+            LineReader reader = new LineReader(new InputStreamReader(body, StandardCharsets.UTF_8), maxLineLength);
+            if (format == Format.CSV) {
+                readCsv(reader, run);
+            } else {
+                readNdjson(reader, run);
+            }
+            run.flush();
+        } finally {
+            metrics.importQuests().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new QuestImportReportDto(run.rows, run.imported, run.failed, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                run.rows / Math.max(elapsed / 1e9, 1e-9), run.errors);
+    }
+
+    private void readNdjson(LineReader reader, Run run) throws IOException {
+        long number = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            number++;
+            if (reader.tooLong()) {
+                run.fail(number, tooLong());
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            QuestImportRowDto row;
+            try {
+                row = rowReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                run.fail(number, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (row == null) {
+                run.fail(number, "Row must be a JSON object");
+                continue;
+            }
+            run.add(number, row.id(), row.name(), row.status(), row.reward());
+        }
+    }
+
+    private void readCsv(LineReader reader, Run run) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        if (reader.tooLong()) {
+            throw new InvalidRequestException("CSV header is longer than " + maxLineLength + " characters");
+        }
+        List<String> columns = parseCsvLine(header.startsWith(BYTE_ORDER_MARK) ? header.substring(1) : header);
+        if (columns == null) {
+            throw new InvalidRequestException("CSV header is malformed");
+        }
+        columns.replaceAll(column -> column.trim().toLowerCase(Locale.ROOT));
+        int idColumn = columns.indexOf("id");
+        int nameColumn = columns.indexOf("name");
+        int statusColumn = columns.indexOf("status");
+        int rewardColumn = columns.indexOf("reward");
+        if (nameColumn < 0) {
+            throw new InvalidRequestException("CSV header must contain a name column");
+        }
+
+        long number = 1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            number++;
+            if (reader.tooLong()) {
+                run.fail(number, tooLong());
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            if (fields == null) {
+                run.fail(number, "Unterminated quoted field");
+                continue;
+            }
+            Long id;
+            String idField = field(fields, idColumn);
+            try {
+                id = idField == null ? null : Long.valueOf(idField.trim());
+            } catch (NumberFormatException e) {
+                run.fail(number, "Invalid id: " + idField);
+                continue;
+            }
+            run.add(number, id, field(fields, nameColumn), field(fields, statusColumn), field(fields, rewardColumn));
+        }
+    }
+
+    private String tooLong() {
+        return "Row is longer than " + maxLineLength + " characters";
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size() || fields.get(column).isEmpty()) {
+            return null;
+        }
+        return fields.get(column);
+    }
+
+    /**
+     * Splits an RFC 4180 line into its fields, or returns {@code null} if a quoted field is
+     * not closed on the same line.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Reads lines ended by {@code \n}, {@code \r\n} or {@code \r}, keeping at most
+     * {@code maxLength} characters of each. The rest of a longer line is skipped without being
+     * buffered; {@link #readLine()} then returns an empty string and {@link #tooLong()} is set.
+     */
+    static final class LineReader {
+
+        private final Reader in;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+        private boolean tooLong;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Returns the next line without its terminator, or {@code null} at the end of the input.
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read ? line() : null;
+                    }
+                }
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (buffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    skipLineFeed = buffer[position++] == '\r';
+                    return line();
+                }
+            }
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        private void append(int start, int end) {
+            if (tooLong) {
+                return;
+            }
+            if (line.length() + end - start > maxLength) {
+                tooLong = true;
+                line.setLength(0);
+                return;
+            }
+            line.append(buffer, start, end - start);
+        }
+
+        private String line() {
+            return line.toString();
+        }
+    }
+
+    private final class Run {
+
+        private List<Quest> batch = new ArrayList<>(batchSize);
+        private final List<QuestImportErrorDto> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+
+        void add(long line, Long id, String name, String status, String reward) {
+            rows++;
+            try {
+                batch.add(questService.newQuest(id, name, status, reward));
+            } catch (InvalidRequestException | InvalidStatusException e) {
+                failed(line, e.getMessage());
+                return;
+            }
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void fail(long line, String message) {
+            rows++;
+            failed(line, message);
+        }
+
+        private void failed(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new QuestImportErrorDto(line, new ErrorResponseDto("BAD_REQUEST", message)));
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            questService.saveQuests(batch);
+            imported += batch.size();
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+}
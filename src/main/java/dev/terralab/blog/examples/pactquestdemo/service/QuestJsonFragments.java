@@ -0,0 +1,234 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestSerializationProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the serialized JSON of every quest that has been listed, so list responses are built
+ * by concatenating byte fragments instead of mapping and serializing each quest again. A
+ * fragment is produced by the application's {@link ObjectMapper} from the same
+ * {@link QuestResponseDto} the list endpoints return, and is only reused while the quest still
+ * has the name, status and reward it was built from, so writes that bypass
+ * {@link QuestService} cannot leave stale JSON behind.
+ * <p>
+ * The fragments are bounded by {@code max-cache-size}, counting each one's JSON plus a fixed
+ * estimate of its map entry. Past that, arbitrary fragments are dropped until a quarter of
+ * the budget is free again, so listing more quests than fit costs one eviction per fragment
+ * rather than a scan per request.
+ * <p>
+ * Lists of at least {@code parallel-threshold} quests are cut into id-ordered chunks of
+ * {@code chunk-size} quests, which are serialized on a dedicated {@link ForkJoinPool} of
+ * {@code parallelism} threads and then copied into the response in order. Smaller lists are
+ * serialized on the calling thread, where handing them to the pool costs more than it saves.
+ */
+@Component
+public class QuestJsonFragments {
+
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectMapper objectMapper;
+    private final boolean compact;
+    private final Map<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final AtomicLong sizeInBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final int parallelThreshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public QuestJsonFragments(ObjectMapper objectMapper, QuestSerializationProperties properties) {
+        this.objectMapper = objectMapper;
+        this.compact = !objectMapper.isEnabled(SerializationFeature.INDENT_OUTPUT);
+        this.parallelThreshold = Math.max(properties.parallelThreshold(), properties.chunkSize() * 2);
+        this.chunkSize = properties.chunkSize();
+        this.maxBytes = properties.maxCacheSize().toBytes();
+        int parallelism = properties.effectiveParallelism();
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * Returns the same bytes as serializing the quests as a list of {@link QuestResponseDto}.
+     */
+    public byte[] toJsonArray(List<Quest> quests) {
+        if (!compact) {
+            try {
+                return objectMapper.writeValueAsBytes(quests.stream().map(QuestResponseDto::from).toList());
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (pool == null || quests.size() < parallelThreshold) {
+            return concatenate(quests, true);
+        }
+        byte[][] chunks = new byte[(quests.size() + chunkSize - 1) / chunkSize][];
+        pool.invoke(new SerializeChunks(quests, chunks, 0, chunks.length));
+
+        long length = 1 + chunks.length;
+        for (byte[] chunk : chunks) {
+            length += chunk.length;
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Quest list is too large to serialize into one array");
+        }
+        byte[] json = new byte[(int) length];
+        json[0] = '[';
+        int offset = 1;
+        for (byte[] chunk : chunks) {
+            if (offset > 1) {
+                json[offset++] = ',';
+            }
+            System.arraycopy(chunk, 0, json, offset, chunk.length);
+            offset += chunk.length;
+        }
+        json[offset] = ']';
+        return json;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @EventListener
+    public void onQuestStatusChanged(QuestStatusChangedEvent event) {
+        Fragment removed = fragments.remove(event.id());
+        if (removed != null) {
+            sizeInBytes.addAndGet(-removed.size());
+        }
+    }
+
+    public int size() {
+        return fragments.size();
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    /**
+     * Joins the quests' fragments with commas, wrapped in brackets when {@code array} is set.
+     */
+    private byte[] concatenate(List<Quest> quests, boolean array) {
+        try {
+            byte[] json = new byte[(int) Math.min(Integer.MAX_VALUE - 8, 2 + quests.size() * 72L)];
+            int length = 0;
+            if (array) {
+                json[length++] = '[';
+            }
+            for (Quest quest : quests) {
+                byte[] fragment = fragmentOf(quest);
+                if (length + fragment.length + 2 > json.length) {
+                    json = Arrays.copyOf(json, Math.max(json.length * 2, length + fragment.length + 2));
+                }
+                if (length > (array ? 1 : 0)) {
+                    json[length++] = ',';
+                }
+                System.arraycopy(fragment, 0, json, length, fragment.length);
+                length += fragment.length;
+            }
+            if (array) {
+                json[length++] = ']';
+            }
+            return length == json.length ? json : Arrays.copyOf(json, length);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] fragmentOf(Quest quest) throws JsonProcessingException {
+        Fragment fragment = fragments.get(quest.getId());
+        if (fragment != null && fragment.matches(quest)) {
+            return fragment.json();
+        }
+        byte[] json = objectMapper.writeValueAsBytes(QuestResponseDto.from(quest));
+        Fragment created = new Fragment(quest.getName(), quest.getStatus(), quest.getReward(), json);
+        if (created.size() <= maxBytes) {
+            Fragment previous = fragments.put(quest.getId(), created);
+            if (sizeInBytes.addAndGet(created.size() - (previous == null ? 0 : previous.size())) > maxBytes) {
+                evict();
+            }
+        }
+        return json;
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long target = maxBytes - maxBytes / 4;
+            Iterator<Map.Entry<Long, Fragment>> entries = fragments.entrySet().iterator();
+            while (sizeInBytes.get() > target && entries.hasNext()) {
+                Map.Entry<Long, Fragment> entry = entries.next();
+                if (fragments.remove(entry.getKey(), entry.getValue())) {
+                    sizeInBytes.addAndGet(-entry.getValue().size());
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record Fragment(String name, Status status, String reward, byte[] json) {
+
+        boolean matches(Quest quest) {
+            return status == quest.getStatus() && Objects.equals(name, quest.getName()) && Objects.equals(reward, quest.getReward());
+        }
+
+        long size() {
+            return json.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Serializes chunks {@code from} to {@code to}, splitting the range in half until it is a
+     * single chunk.
+     */
+    private final class SerializeChunks extends RecursiveAction {
+
+        private final List<Quest> quests;
+        private final byte[][] chunks;
+        private final int from;
+        private final int to;
+
+        SerializeChunks(List<Quest> quests, byte[][] chunks, int from, int to) {
+            this.quests = quests;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                chunks[from] = concatenate(quests.subList(from * chunkSize, Math.min(quests.size(), (from + 1) * chunkSize)), false);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SerializeChunks(quests, chunks, from, middle), new SerializeChunks(quests, chunks, middle, to));
+        }
+    }
+}
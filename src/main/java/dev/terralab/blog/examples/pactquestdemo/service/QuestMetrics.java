@@ -0,0 +1,149 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.InstrumentedQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+/**
+ * Meters for quest operations. Everything on a hot path is registered up front and held in a
+ * field or an array indexed by status ordinal, so recording never looks a meter up by name;
+ * error counters are registered by their callers through {@link #errors}. The
+ * {@code quest.quests} gauges share one snapshot of the counts that is taken at most once per
+ * {@link #QUEST_COUNT_INTERVAL}, so a scrape does not query a database store every time.
+ * <p>
+ * Single-quest lookups get no service timer, as the repository's {@code findById} timer and
+ * {@code http.server.requests} already time them. The list timer covers reading and encoding
+ * the list, as the response cache stores it.
+ * Meters can be switched off with {@code management.metrics.enable.quest=false}, which makes
+ * the registry hand out no-op meters.
+ */
+@Component
+public class QuestMetrics {
+
+    public static final String SERVICE_CALLS = "quest.service.calls";
+    public static final String TRANSITIONS = "quest.status.transitions";
+    public static final String ERRORS = "quest.errors";
+    public static final String QUESTS = "quest.quests";
+    public static final Duration QUEST_COUNT_INTERVAL = Duration.ofSeconds(10);
+
+    private final MeterRegistry registry;
+    private final Timer getQuests;
+    private final Timer updateQuestStatus;
+    private final Timer updateQuestStatuses;
+    private final Timer createQuest;
+    private final Timer importQuests;
+    private final Counter[][] transitions;
+
+    public QuestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.getQuests = timer("getQuests");
+        this.updateQuestStatus = timer("updateQuestStatus");
+        this.updateQuestStatuses = timer("updateQuestStatuses");
+        this.createQuest = timer("createQuest");
+        this.importQuests = timer("importQuests");
+        Status[] statuses = Status.values();
+        this.transitions = new Counter[statuses.length][statuses.length];
+        for (Status from : statuses) {
+            for (Status to : statuses) {
+                transitions[from.ordinal()][to.ordinal()] = Counter.builder(TRANSITIONS)
+                        .description("Quest status changes")
+                        .tag("from", from.name())
+                        .tag("to", to.name())
+                        .register(registry);
+            }
+        }
+    }
+
+    public QuestRepository instrument(QuestRepository repository) {
+        return new InstrumentedQuestRepository(repository, registry);
+    }
+
+    public void registerQuestCounts(ToLongFunction<Status> count) {
+        QuestCounts counts = new QuestCounts(count);
+        for (Status status : Status.values()) {
+            Gauge.builder(QUESTS, () -> counts.get(status))
+                    .description("Number of quests per status")
+                    .tag("status", status.name())
+                    .register(registry);
+        }
+    }
+
+    public Timer getQuests() {
+        return getQuests;
+    }
+
+    public Timer updateQuestStatus() {
+        return updateQuestStatus;
+    }
+
+    public Timer updateQuestStatuses() {
+        return updateQuestStatuses;
+    }
+
+    public Timer createQuest() {
+        return createQuest;
+    }
+
+    public Timer importQuests() {
+        return importQuests;
+    }
+
+    public Counter errors(String code, Class<? extends Exception> exception) {
+        return Counter.builder(ERRORS)
+                .description("Errors answered to quest clients")
+                .tag("code", code)
+                .tag("exception", exception.getSimpleName())
+                .register(registry);
+    }
+
+    @EventListener
+    public void onQuestStatusChanged(QuestStatusChangedEvent event) {
+        transitions[event.from().ordinal()][event.to().ordinal()].increment();
+    }
+
+    /**
+     * The quest count of every status, refreshed together once the last refresh is older than
+     * {@link #QUEST_COUNT_INTERVAL}.
+     */
+    private static final class QuestCounts {
+
+        private final ToLongFunction<Status> count;
+        private final long[] counts = new long[Status.values().length];
+        private long refreshedAt;
+        private boolean refreshed;
+
+        QuestCounts(ToLongFunction<Status> count) {
+            this.count = count;
+        }
+
+        synchronized long get(Status status) {
+            long now = System.nanoTime();
+            if (!refreshed || now - refreshedAt >= QUEST_COUNT_INTERVAL.toNanos()) {
+                for (Status each : Status.values()) {
+                    counts[each.ordinal()] = count.applyAsLong(each);
+                }
+                refreshedAt = now;
+                refreshed = true;
+            }
+            return counts[status.ordinal()];
+        }
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder(SERVICE_CALLS)
+                .description("Latency of QuestService operations")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,173 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestResponseCacheProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps serialized read responses until the next quest change. Entries are looked up by key
+ * and ETag, so a caller passing the ETag of the current repository version never receives a
+ * response built for an older one. Every entry is also tagged with the generation it was
+ * loaded in and is only stored if no invalidation happened while it was being loaded.
+ * Lookups, evictions, invalidations and the cached bytes are published as meters.
+ */
+@Component
+public class QuestResponseCache {
+
+    public static final String REQUESTS = "quest.response-cache.requests";
+    public static final String EVICTIONS = "quest.response-cache.evictions";
+    public static final String INVALIDATIONS = "quest.response-cache.invalidations";
+    public static final String SIZE = "quest.response-cache.size";
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int maxEntries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QuestResponseCache(QuestResponseCacheProperties properties, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.maxBytes = properties.maxSize().toBytes();
+        this.maxEntries = properties.maxEntries();
+        FunctionCounter.builder(REQUESTS, this, QuestResponseCache::hits)
+                .description("Cached read responses served")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(REQUESTS, this, QuestResponseCache::misses)
+                .description("Read responses built because none was cached")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder(EVICTIONS, this, QuestResponseCache::evictions)
+                .description("Cached read responses dropped to stay within the size bounds")
+                .register(registry);
+        FunctionCounter.builder(INVALIDATIONS, this, QuestResponseCache::invalidations)
+                .description("Times the cache was cleared because a quest changed")
+                .register(registry);
+        Gauge.builder(SIZE, this, QuestResponseCache::sizeInBytes)
+                .description("Bytes of cached read responses")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public CachedResponse get(String key, String etag, ResponseLoader loader) throws IOException {
+        long observed = generation.get();
+        Entry entry = null;
+        if (enabled) {
+            lock.lock();
+            try {
+                entry = entries.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (entry != null && entry.generation() == observed && entry.response().etag().equals(etag)) {
+            hits.increment();
+            return entry.response();
+        }
+        misses.increment();
+        CachedResponse response = new CachedResponse(loader.load(), etag);
+        if (enabled) {
+            store(key, new Entry(observed, response));
+        }
+        return response;
+    }
+
+    @EventListener
+    public void onQuestStatusChanged(QuestStatusChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.increment();
+        lock.lock();
+        try {
+            entries.clear();
+            sizeInBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    public long sizeInBytes() {
+        lock.lock();
+        try {
+            return sizeInBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        int size = entry.response().body().length;
+        if (size > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (generation.get() != entry.generation()) {
+                return;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                sizeInBytes -= previous.response().body().length;
+            }
+            sizeInBytes += size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (sizeInBytes > maxBytes || entries.size() > maxEntries) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                sizeInBytes -= evicted.response().body().length;
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseLoader {
+        byte[] load() throws IOException;
+    }
+
+    public record CachedResponse(byte[] body, String etag) {
+    }
+
+    private record Entry(long generation, CachedResponse response) {
+    }
+}
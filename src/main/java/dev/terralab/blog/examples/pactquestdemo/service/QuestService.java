@@ -1,54 +1,401 @@
 package dev.terralab.blog.examples.pactquestdemo.service;
 
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
 import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateResultDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestCreateRequestDto;
 import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
 import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidRequestException;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
 import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusTransitionException;
 import dev.terralab.blog.examples.pactquestdemo.exception.QuestNotFoundException;
 import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
-import lombok.AllArgsConstructor;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository.Transition;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
-@AllArgsConstructor
 public class QuestService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int TRANSITION_LOCK_STRIPES = 64;
+
+    private static final String ETAG_EPOCH = Long.toHexString(System.currentTimeMillis());
+
+    private static final InvalidStatusTransitionException ALREADY_COMPLETED = new InvalidStatusTransitionException("Quest is already completed");
+    private static final InvalidStatusTransitionException INVALID_TRANSITION = new InvalidStatusTransitionException("Invalid status transition");
+
     private final QuestRepository questRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final QuestJsonFragments jsonFragments;
+    private final QuestMetrics metrics;
+    private final int maxTextBytes;
+    private final AtomicLong lastAllocatedId = new AtomicLong();
+    /**
+     * Held by id from a conditional status update until its event is published, so the next
+     * transition of the same quest cannot be published first and the event feed sees every
+     * quest's transitions in the order they were applied.
+     */
+    private final ReentrantLock[] transitionLocks = new ReentrantLock[TRANSITION_LOCK_STRIPES];
+
+    public QuestService(QuestRepository questRepository, ApplicationEventPublisher eventPublisher,
+                        QuestJsonFragments jsonFragments, QuestMetrics metrics) {
+        this.questRepository = metrics.instrument(questRepository);
+        this.eventPublisher = eventPublisher;
+        this.jsonFragments = jsonFragments;
+        this.metrics = metrics;
+        this.maxTextBytes = questRepository.maxTextBytes();
+        for (int i = 0; i < transitionLocks.length; i++) {
+            transitionLocks[i] = new ReentrantLock();
+        }
+        metrics.registerQuestCounts(this.questRepository::countByStatus);
+    }
 
+    /**
+     * Returns a read-only view that maps each quest when it is accessed, so serializing the
+     * list never holds a response object for every quest at once.
+     */
     public List<QuestResponseDto> getQuests() {
-        return questRepository.findAll().stream().map(QuestResponseDto::from).toList();
+        return responseView(questRepository.findAll());
     }
 
-    public QuestResponseDto updateQuestStatus(Long id, QuestUpdateRequestDto quest) {
+    /**
+     * Same as {@link #getQuests()}, restricted to quests in one of the given statuses and
+     * served from the repository's status index.
+     */
+    public List<QuestResponseDto> getQuests(Set<Status> statuses) {
+        return responseView(questRepository.findAllByStatus(statuses));
+    }
+
+    /**
+     * {@link #getQuests()} encoded by {@code encoder}. The view is mapped while it is encoded,
+     * so the list timer covers the encoding, as it does for {@link #getQuestsJson()}.
+     */
+    public byte[] getQuests(QuestListEncoder encoder) throws IOException {
+        return timeListRead(() -> encoder.encode(getQuests()));
+    }
+
+    public byte[] getQuests(Set<Status> statuses, QuestListEncoder encoder) throws IOException {
+        return timeListRead(() -> encoder.encode(getQuests(statuses)));
+    }
+
+    private byte[] timeListRead(QuestResponseCache.ResponseLoader read) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return read.load();
+        } finally {
+            metrics.getQuests().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public long countQuests(Set<Status> statuses) {
+        long count = 0;
+        for (Status status : statuses.isEmpty() ? EnumSet.allOf(Status.class) : statuses) {
+            count += questRepository.countByStatus(status);
+        }
+        return count;
+    }
+
+    public Set<Status> parseStatuses(List<String> statuses) {
+        Set<Status> parsed = EnumSet.noneOf(Status.class);
+        for (String status : statuses) {
+            parsed.add(Status.from(status));
+        }
+        return parsed;
+    }
+
+    private static List<QuestResponseDto> responseView(List<Quest> quests) {
+        return new AbstractList<>() {
+            @Override
+            public QuestResponseDto get(int index) {
+                return QuestResponseDto.from(quests.get(index));
+            }
+
+            @Override
+            public int size() {
+                return quests.size();
+            }
+        };
+    }
+
+    /**
+     * The JSON of {@link #getQuests()}, assembled from per-quest fragments that are only
+     * serialized again once the quest has changed.
+     */
+    public byte[] getQuestsJson() {
+        return metrics.getQuests().record(() -> jsonFragments.toJsonArray(questRepository.findAll()));
+    }
+
+    public byte[] getQuestsJson(Set<Status> statuses) {
+        return metrics.getQuests().record(() -> jsonFragments.toJsonArray(questRepository.findAllByStatus(statuses)));
+    }
+
+    public String getQuestsETag() {
+        return "\"" + ETAG_EPOCH + "-" + Long.toHexString(questRepository.version()) + "\"";
+    }
 
+    public QuestResponseDto getQuest(Long id) {
         return questRepository.findById(id)
-                .map(q -> {
-                    verifyStatusTransition(q.getStatus(), Status.from(quest.status()));
-                    q.setStatus(Status.from(quest.status()));
-                    questRepository.save(q);
-                    return QuestResponseDto.from(q);
-                })
+                .map(QuestResponseDto::from)
                 .orElseThrow(
                         () -> new QuestNotFoundException("Quest not found")
                 );
     }
 
-    private void verifyStatusTransition(Status currentStatus, Status newStatus) {
-        if (currentStatus == Status.COMPLETED) {
-            throw new InvalidStatusTransitionException("Quest is already completed");
+    public List<QuestResponseDto> getQuests(Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
         }
+        return questRepository.findAllAfter(after, limit).stream().map(QuestResponseDto::from).toList();
+    }
 
-        if (currentStatus == Status.NOT_STARTED && newStatus == Status.IN_PROGRESS) {
-            return;
+    public Stream<QuestResponseDto> streamQuests() {
+        return Stream.iterate(
+                        questRepository.findAllAfter(null, STREAM_BATCH_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < STREAM_BATCH_SIZE
+                                ? List.of()
+                                : questRepository.findAllAfter(page.getLast().getId(), STREAM_BATCH_SIZE))
+                .flatMap(List::stream)
+                .map(QuestResponseDto::from);
+    }
+
+    public QuestResponseDto createQuest(QuestCreateRequestDto request) {
+        return metrics.createQuest().record(() -> {
+            Quest quest = newQuest(null, request.name(), request.status(), request.reward());
+            saveQuests(List.of(quest));
+            return QuestResponseDto.from(quest);
+        });
+    }
+
+    /**
+     * Validates a quest to be stored by {@link #saveQuests(List)}. The id may be {@code null},
+     * and a missing status means NOT_STARTED.
+     */
+    public Quest newQuest(Long id, String name, String status, String reward) {
+        if (id != null && id < 1) {
+            throw new InvalidRequestException("Quest id must be positive");
+        }
+        if (name == null || name.isBlank()) {
+            throw new InvalidRequestException("Quest name is required");
         }
+        Status parsed = status == null || status.isEmpty() ? Status.NOT_STARTED : Status.from(status);
+        int textBytes = name.getBytes(StandardCharsets.UTF_8).length
+                + (reward == null ? 0 : reward.getBytes(StandardCharsets.UTF_8).length);
+        if (textBytes > maxTextBytes) {
+            throw new InvalidRequestException("Quest name and reward must not exceed " + maxTextBytes + " bytes");
+        }
+        return new Quest(id, name, parsed, reward);
+    }
 
-        if (currentStatus == Status.IN_PROGRESS && newStatus == Status.COMPLETED) {
+    /**
+     * Stores quests built by {@link #newQuest}, first giving those without an id the next
+     * free ones. A quest with an id replaces any stored quest with that id.
+     */
+    public void saveQuests(List<Quest> quests) {
+        int missing = 0;
+        long highest = 0;
+        for (Quest quest : quests) {
+            if (quest.getId() == null) {
+                missing++;
+            } else {
+                highest = Math.max(highest, quest.getId());
+            }
+        }
+        if (missing > 0) {
+            long next = allocateIds(missing, highest);
+            for (Quest quest : quests) {
+                if (quest.getId() == null) {
+                    quest.setId(next++);
+                }
+            }
+        }
+        questRepository.saveAll(quests);
+    }
+
+    /**
+     * Reserves {@code count} consecutive ids above every stored id, every id reserved before,
+     * and {@code floor}, returning the first.
+     */
+    private long allocateIds(int count, long floor) {
+        // read once: the update function is retried under contention, and on JPA maxId() is a query
+        long stored = questRepository.maxId();
+        long last = lastAllocatedId.updateAndGet(previous -> Math.max(Math.max(previous, floor), stored) + count);
+        return last - count + 1;
+    }
+
+    public QuestResponseDto updateQuestStatus(Long id, QuestUpdateRequestDto quest) {
+        return metrics.updateQuestStatus().record(() -> applyStatusUpdate(id, quest));
+    }
+
+    private QuestResponseDto applyStatusUpdate(Long id, QuestUpdateRequestDto quest) {
+        while (true) {
+            Quest current = questRepository.findById(id)
+                    .orElseThrow(
+                            () -> new QuestNotFoundException("Quest not found")
+                    );
+            Status newStatus = Status.from(quest.status());
+            verifyStatusTransition(current.getStatus(), newStatus);
+            ReentrantLock lock = transitionLockOf(id);
+            lock.lock();
+            try {
+                if (questRepository.compareAndSetStatus(id, current.getStatus(), newStatus)) {
+                    eventPublisher.publishEvent(new QuestStatusChangedEvent(id, current.getStatus(), newStatus));
+                    current.setStatus(newStatus);
+                    return QuestResponseDto.from(current);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public List<QuestBatchUpdateResultDto> updateQuestStatuses(List<QuestBatchUpdateRequestDto> updates) {
+        return metrics.updateQuestStatuses().record(() -> applyBatchUpdates(updates));
+    }
+
+    /**
+     * Validates the updates against one read of the quests and applies the valid ones with
+     * one conditional update per run of distinct ids; an id that appears again starts a new
+     * run, so repeated updates to a quest still apply in order. Updates that lose a race are
+     * retried one by one.
+     */
+    private List<QuestBatchUpdateResultDto> applyBatchUpdates(List<QuestBatchUpdateRequestDto> updates) {
+        if (updates.size() > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("Batch must not contain more than " + MAX_BATCH_SIZE + " updates");
+        }
+        List<Long> ids = updates.stream().map(QuestBatchUpdateRequestDto::id).filter(Objects::nonNull).toList();
+        Map<Long, Quest> quests = new HashMap<>();
+        for (Quest quest : questRepository.findAllById(ids)) {
+            quests.put(quest.getId(), quest);
+        }
+
+        QuestBatchUpdateResultDto[] results = new QuestBatchUpdateResultDto[updates.size()];
+        Map<Long, Transition> transitions = new LinkedHashMap<>();
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            QuestBatchUpdateRequestDto update = updates.get(i);
+            if (transitions.containsKey(update.id())) {
+                applyTransitions(transitions, positions, updates, quests, results);
+            }
+            int position = i;
+            results[i] = resultOf(update, () -> {
+                transitions.put(update.id(), transitionOf(update, quests));
+                positions.put(update.id(), position);
+                return null;
+            });
+        }
+        applyTransitions(transitions, positions, updates, quests, results);
+        return Arrays.asList(results);
+    }
+
+    private Transition transitionOf(QuestBatchUpdateRequestDto update, Map<Long, Quest> quests) {
+        if (update.id() == null) {
+            throw new InvalidRequestException("Quest id is required");
+        }
+        Quest current = quests.get(update.id());
+        if (current == null) {
+            throw new QuestNotFoundException("Quest not found");
+        }
+        Status newStatus = Status.from(update.status());
+        verifyStatusTransition(current.getStatus(), newStatus);
+        return new Transition(current.getStatus(), newStatus);
+    }
+
+    private void applyTransitions(Map<Long, Transition> transitions, Map<Long, Integer> positions,
+                                  List<QuestBatchUpdateRequestDto> updates, Map<Long, Quest> quests,
+                                  QuestBatchUpdateResultDto[] results) {
+        if (transitions.isEmpty()) {
             return;
         }
+        // taken in stripe order, so batches cannot deadlock on each other
+        BitSet stripes = new BitSet(TRANSITION_LOCK_STRIPES);
+        transitions.keySet().forEach(id -> stripes.set(stripeOf(id)));
+        stripes.stream().forEach(stripe -> transitionLocks[stripe].lock());
+        try {
+            publishTransitions(transitions, positions, updates, quests, results);
+        } finally {
+            stripes.stream().forEach(stripe -> transitionLocks[stripe].unlock());
+        }
+        transitions.clear();
+        positions.clear();
+    }
+
+    private void publishTransitions(Map<Long, Transition> transitions, Map<Long, Integer> positions,
+                                    List<QuestBatchUpdateRequestDto> updates, Map<Long, Quest> quests,
+                                    QuestBatchUpdateResultDto[] results) {
+        Set<Long> updated = questRepository.compareAndSetStatuses(transitions);
+        transitions.forEach((id, transition) -> {
+            int position = positions.get(id);
+            Quest current = quests.get(id);
+            if (updated.contains(id)) {
+                eventPublisher.publishEvent(new QuestStatusChangedEvent(id, transition.expected(), transition.next()));
+                current.setStatus(transition.next());
+                results[position] = QuestBatchUpdateResultDto.updated(QuestResponseDto.from(current));
+                return;
+            }
+            results[position] = resultOf(updates.get(position), () -> {
+                QuestResponseDto retried = applyStatusUpdate(id, new QuestUpdateRequestDto(updates.get(position).status()));
+                current.setStatus(Status.from(retried.status()));
+                return QuestBatchUpdateResultDto.updated(retried);
+            });
+        });
+    }
+
+    private ReentrantLock transitionLockOf(long id) {
+        return transitionLocks[stripeOf(id)];
+    }
 
-        throw new InvalidStatusTransitionException("Invalid status transition");
+    private static int stripeOf(long id) {
+        return (int) Long.remainderUnsigned(id, TRANSITION_LOCK_STRIPES);
+    }
+
+    @FunctionalInterface
+    public interface QuestListEncoder {
+        byte[] encode(List<QuestResponseDto> quests) throws IOException;
+    }
+
+    private QuestBatchUpdateResultDto resultOf(QuestBatchUpdateRequestDto update, Supplier<QuestBatchUpdateResultDto> apply) {
+        try {
+            return apply.get();
+        } catch (QuestNotFoundException e) {
+            return QuestBatchUpdateResultDto.failed(update.id(), new ErrorResponseDto("NOT_FOUND", e.getMessage()));
+        } catch (InvalidStatusException | InvalidRequestException e) {
+            return QuestBatchUpdateResultDto.failed(update.id(), new ErrorResponseDto("BAD_REQUEST", e.getMessage()));
+        } catch (InvalidStatusTransitionException e) {
+            return QuestBatchUpdateResultDto.failed(update.id(), new ErrorResponseDto("INVALID_ACTION", e.getMessage()));
+        }
+    }
+
+    private void verifyStatusTransition(Status currentStatus, Status newStatus) {
+        if (!currentStatus.canTransitionTo(newStatus)) {
+            throw currentStatus.isFinal() ? ALREADY_COMPLETED : INVALID_TRANSITION;
+        }
     }
 
 }
@@ -0,0 +1,75 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consistent-hash ring mapping quest ids to node names. Each node is placed on the ring at
+ * {@code virtualNodes} points, and an id belongs to the first point at or after its hash, so
+ * adding or removing a node only moves the ids in the ranges next to that node's points.
+ * <p>
+ * Hashes depend only on the node names and ids, never on iteration or configuration order,
+ * so every node builds the same ring from the same membership.
+ */
+public class QuestShardRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    public QuestShardRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = List.copyOf(nodes);
+        int size = nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        String[] names = new String[size];
+        int i = 0;
+        for (String node : this.nodes) {
+            long seed = hashOf(node);
+            for (int replica = 0; replica < virtualNodes; replica++, i++) {
+                hashes[i] = mix(seed + replica * 0x9E3779B97F4A7C15L);
+                names[i] = node;
+            }
+        }
+
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, index -> index);
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compare(hashes[a], hashes[b]) : names[a].compareTo(names[b]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int k = 0; k < size; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = names[order[k]];
+        }
+    }
+
+    public String ownerOf(long id) {
+        int index = Arrays.binarySearch(points, mix(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    private static long hashOf(String node) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ b) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
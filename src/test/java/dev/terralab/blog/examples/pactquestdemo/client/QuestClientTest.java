@@ -0,0 +1,166 @@
+package dev.terralab.blog.examples.pactquestdemo.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class QuestClientTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private QuestClient client;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 7001; id <= 7020; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        client = new QuestClient(URI.create("http://localhost:" + port), HttpClient.newHttpClient(), new ObjectMapper(),
+                Duration.ofMillis(50), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void should_decode_quests() {
+        assertThat(client.getQuest(7001).join()).isEqualTo(new QuestResponseDto(7001L, "Quest 7001", "NOT_STARTED", "100 XP"));
+        assertThat(client.getQuests().join()).extracting(QuestResponseDto::id).contains(7001L, 7020L);
+    }
+
+    @Test
+    void should_coalesce_concurrent_updates_into_one_batch() {
+        long batches = batchCount();
+        List<CompletableFuture<QuestResponseDto>> updates = new ArrayList<>();
+        for (long id = 7001; id <= 7010; id++) {
+            updates.add(client.updateQuestStatus(id, "IN_PROGRESS"));
+        }
+        CompletableFuture<QuestResponseDto> missing = client.updateQuestStatus(9999, "IN_PROGRESS");
+
+        assertThat(updates).allSatisfy(update -> assertThat(update.join().status()).isEqualTo("IN_PROGRESS"));
+        assertThatThrownBy(missing::join)
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOf(QuestClientException.class)
+                .hasFieldOrPropertyWithValue("status", 404)
+                .hasFieldOrPropertyWithValue("code", "NOT_FOUND");
+        assertThat(batchCount()).isEqualTo(batches + 1);
+        assertThat(repository.findById(7005L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+    }
+
+    @Test
+    void should_send_a_lone_update_as_a_put_and_surface_its_error() {
+        assertThat(client.updateQuestStatus(7011, "IN_PROGRESS").join().status()).isEqualTo("IN_PROGRESS");
+
+        assertThatThrownBy(() -> client.updateQuestStatus(7011, "NOT_STARTED").join())
+                .cause()
+                .isInstanceOf(QuestClientException.class)
+                .hasMessage("Invalid status transition")
+                .hasFieldOrPropertyWithValue("status", 400)
+                .hasFieldOrPropertyWithValue("code", "INVALID_ACTION");
+    }
+
+    @Test
+    void should_send_an_update_at_once_when_none_is_in_flight() {
+        try (QuestClient slowWindow = new QuestClient(URI.create("http://localhost:" + port), HttpClient.newHttpClient(),
+                new ObjectMapper(), Duration.ofSeconds(5), 100)) {
+            long start = System.nanoTime();
+
+            assertThat(slowWindow.updateQuestStatus(7012, "IN_PROGRESS").join().status()).isEqualTo("IN_PROGRESS");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        }
+    }
+
+    @Test
+    void should_fail_every_update_of_a_batch_answered_with_too_few_results() throws Exception {
+        CountDownLatch batched = new CountDownLatch(1);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/quest", exchange -> {
+            if (exchange.getRequestMethod().equals("PUT")) {
+                await(batched);
+                answer(exchange, "{\"id\":1,\"name\":\"Quest 1\",\"status\":\"IN_PROGRESS\",\"reward\":null}");
+            } else {
+                answer(exchange, "[{\"success\":true,\"quest\":{\"id\":2,\"name\":\"Quest 2\",\"status\":\"IN_PROGRESS\",\"reward\":null}}]");
+            }
+        });
+        server.start();
+        try (QuestClient stubbed = new QuestClient(URI.create("http://localhost:" + server.getAddress().getPort()),
+                HttpClient.newHttpClient(), new ObjectMapper(), Duration.ofMillis(50), 100)) {
+            CompletableFuture<QuestResponseDto> first = stubbed.updateQuestStatus(1, "IN_PROGRESS");
+            List<CompletableFuture<QuestResponseDto>> updates = List.of(stubbed.updateQuestStatus(2, "IN_PROGRESS"),
+                    stubbed.updateQuestStatus(3, "IN_PROGRESS"), stubbed.updateQuestStatus(4, "IN_PROGRESS"));
+            batched.countDown();
+
+            assertThat(first.join().status()).isEqualTo("IN_PROGRESS");
+            assertThat(updates).allSatisfy(update -> assertThatThrownBy(() -> update.get(5, TimeUnit.SECONDS))
+                    .cause()
+                    .isInstanceOf(QuestClientException.class)
+                    .hasFieldOrPropertyWithValue("code", "UNEXPECTED_RESPONSE"));
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void answer(HttpExchange exchange, String json) throws IOException {
+        try (exchange) {
+            byte[] body = json.getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private long batchCount() {
+        return meterRegistry.get(QuestMetrics.SERVICE_CALLS).tag("operation", "updateQuestStatuses").timer().count();
+    }
+}
@@ -3,20 +3,43 @@ package dev.terralab.blog.examples.pactquestdemo.contract.consumer.client;
 import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.base.ApiResponse;
 import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.base.ApiClient;
 
+import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
+
 public class QuestManagerClient extends ApiClient {
 
     public QuestManagerClient(String baseUrl) {
         super(baseUrl);
     }
 
+    public QuestManagerClient(String baseUrl, HttpClient httpClient) {
+        super(baseUrl, httpClient);
+    }
+
     public ApiResponse<QuestResponse[]> getQuests() {
         return get("/quest", QuestResponse[].class);
     }
 
+    public ApiResponse<QuestResponse> getQuest(String questId) {
+        return get("/quest/" + questId, QuestResponse.class);
+    }
+
     public ApiResponse<QuestResponse> updateQuestStatus(String questId, String status) {
         return put("/quest/" + questId, new QuestUpdateRequest(status), QuestResponse.class);
     }
 
+    public CompletableFuture<ApiResponse<QuestResponse[]>> getQuestsAsync() {
+        return getAsync("/quest", QuestResponse[].class);
+    }
+
+    public CompletableFuture<ApiResponse<QuestResponse>> getQuestAsync(String questId) {
+        return getAsync("/quest/" + questId, QuestResponse.class);
+    }
+
+    public CompletableFuture<ApiResponse<QuestResponse>> updateQuestStatusAsync(String questId, String status) {
+        return putAsync("/quest/" + questId, new QuestUpdateRequest(status), QuestResponse.class);
+    }
+
     public record QuestResponse(int id, String name, String reward, String status) {
     }
 
@@ -5,94 +5,100 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 
-@RequiredArgsConstructor
+/**
+ * Every request has a blocking and an {@code Async} variant. The async variants never
+ * complete exceptionally: like the blocking ones, failures become an {@link ApiResponse} with
+ * an {@link ApiError} and status 0.
+ */
 public abstract class ApiClient {
 
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private final HttpClient httpClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String baseUrl;
 
+    protected ApiClient(String baseUrl) {
+        this(baseUrl, HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build());
+    }
+
+    protected ApiClient(String baseUrl, HttpClient httpClient) {
+        this.baseUrl = baseUrl;
+        this.httpClient = httpClient;
+    }
+
     protected <T> ApiResponse<T> get(String endpoint, Class<T> responseType) {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + endpoint))
-                    .GET()
-                    .build();
+        return getAsync(endpoint, responseType).join();
+    }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    protected <T, R> ApiResponse<R> put(String endpoint, T requestBody, Class<R> responseType) {
+        return putAsync(endpoint, requestBody, responseType).join();
+    }
 
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                T data = objectMapper.readValue(response.body(), responseType);
-                return new ApiResponse<>(data);
-            } else {
-                ApiError error = parseError(response.body());
-                return new ApiResponse<>(error);
-            }
+    protected <T, R> ApiResponse<R> post(String endpoint, T requestBody, Class<R> responseType) {
+        return postAsync(endpoint, requestBody, responseType).join();
+    }
 
-        } catch (Exception e) {
-            ApiError error = new ApiError("CLIENT_ERROR", "An problem occurred while processing the request." + e.getMessage());
-            return new ApiResponse<>(error);
-        }
+    protected <T> CompletableFuture<ApiResponse<T>> getAsync(String endpoint, Class<T> responseType) {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + endpoint))
+                .GET(), responseType);
     }
 
-    protected <T, R> ApiResponse<R> put(String endpoint, T requestBody, Class<R> responseType) {
+    protected <T, R> CompletableFuture<ApiResponse<R>> putAsync(String endpoint, T requestBody, Class<R> responseType) {
         try {
-            String requestBodyJson = objectMapper.writeValueAsString(requestBody);
-
-            HttpRequest request = HttpRequest.newBuilder()
+            return send(HttpRequest.newBuilder()
                     .uri(URI.create(baseUrl + endpoint))
                     .header("Content-Type", "application/json")
-                    .PUT(HttpRequest.BodyPublishers.ofString(requestBodyJson))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                R data = objectMapper.readValue(response.body(), responseType);
-                return new ApiResponse<>(data);
-            } else {
-                ApiError error = parseError(response.body());
-                return new ApiResponse<>(error);
-            }
-
+                    .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody))), responseType);
         } catch (Exception e) {
-            ApiError error = new ApiError("CLIENT_ERROR", "An problem occurred while processing the request." + e.getMessage());
-            return new ApiResponse<>(error);
+            return CompletableFuture.completedFuture(clientError(e));
         }
     }
 
-    protected <T, R> ApiResponse<R> post(String endpoint, T requestBody, Class<R> responseType) {
+    protected <T, R> CompletableFuture<ApiResponse<R>> postAsync(String endpoint, T requestBody, Class<R> responseType) {
         try {
-            String requestBodyJson = objectMapper.writeValueAsString(requestBody);
-
-            HttpRequest request = HttpRequest.newBuilder()
+            return send(HttpRequest.newBuilder()
                     .uri(URI.create(baseUrl + endpoint))
                     .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBodyJson))
-                    .build();
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody))), responseType);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(clientError(e));
+        }
+    }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private <R> CompletableFuture<ApiResponse<R>> send(HttpRequest.Builder request, Class<R> responseType) {
+        try {
+            return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                    .handle((response, failure) -> failure != null ? clientError(failure) : toApiResponse(response, responseType));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(clientError(e));
+        }
+    }
 
+    private <R> ApiResponse<R> toApiResponse(HttpResponse<String> response, Class<R> responseType) {
+        try {
             if (response.statusCode() >= 200 && response.statusCode() < 300) {
                 R data = objectMapper.readValue(response.body(), responseType);
-                return new ApiResponse<>(data);
+                return new ApiResponse<>(data, response.statusCode());
             } else {
                 ApiError error = parseError(response.body());
-                return new ApiResponse<>(error);
+                return new ApiResponse<>(error, response.statusCode());
             }
-
         } catch (Exception e) {
-            ApiError error = new ApiError("CLIENT_ERROR", "An problem occurred while processing the request." + e.getMessage());
-            return new ApiResponse<>(error);
+            return clientError(e);
         }
     }
 
+    private static <R> ApiResponse<R> clientError(Throwable e) {
+        ApiError error = new ApiError("CLIENT_ERROR", "An problem occurred while processing the request." + e.getMessage());
+        return new ApiResponse<>(error, 0);
+    }
+
     private ApiError parseError(String responseBody) {
         try {
             return objectMapper.readValue(responseBody, ApiError.class);
@@ -1,11 +1,14 @@
 package dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.base;
 
-public record ApiResponse<T>(T data, ApiError error, boolean success) {
-    public ApiResponse(T data) {
-        this(data, null, true);
+/**
+ * {@code status} is the HTTP status code, or 0 when no response was received.
+ */
+public record ApiResponse<T>(T data, ApiError error, boolean success, int status) {
+    public ApiResponse(T data, int status) {
+        this(data, null, true, status);
     }
 
-    public ApiResponse(ApiError error) {
-        this(null, error, false);
+    public ApiResponse(ApiError error, int status) {
+        this(null, error, false, status);
     }
 }
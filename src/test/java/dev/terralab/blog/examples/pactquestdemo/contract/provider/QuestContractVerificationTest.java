@@ -52,6 +52,7 @@ public class QuestContractVerificationTest {
         var id = 1L;
         var quest = new Quest(id, "Quest 1", Status.IN_PROGRESS, "100 XP");
         Mockito.when(questRepository.findById(id)).thenReturn(Optional.of(quest));
+        Mockito.when(questRepository.compareAndSetStatus(id, Status.IN_PROGRESS, Status.COMPLETED)).thenReturn(true);
         return Map.of("id", id);
     }
 
@@ -60,6 +61,7 @@ public class QuestContractVerificationTest {
         var id = 1L;
         var quest = new Quest(id, "Quest 1", Status.NOT_STARTED, "100 XP");
         Mockito.when(questRepository.findById(id)).thenReturn(Optional.of(quest));
+        Mockito.when(questRepository.compareAndSetStatus(id, Status.NOT_STARTED, Status.IN_PROGRESS)).thenReturn(true);
         return Map.of("id", id);
     }
 
@@ -0,0 +1,58 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientRateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void should_allow_a_burst_and_then_refill_at_the_configured_rate() {
+        var limiter = new ClientRateLimiter(10, 3, 100);
+        long now = 1_000_000 * MILLIS;
+
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        assertThat(limiter.tryAcquire("a", now)).isEqualTo(100 * MILLIS);
+        assertThat(limiter.tryAcquire("b", now)).isZero();
+
+        assertThat(limiter.tryAcquire("a", now + 99 * MILLIS)).isEqualTo(MILLIS);
+        assertThat(limiter.tryAcquire("a", now + 100 * MILLIS)).isZero();
+        assertThat(limiter.tryAcquire("a", now + 100 * MILLIS)).isPositive();
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("a", now + 10_000 * MILLIS)).isZero();
+        }
+        assertThat(limiter.tryAcquire("a", now + 10_000 * MILLIS)).isPositive();
+    }
+
+    @Test
+    void should_forget_idle_clients_once_too_many_are_tracked() {
+        var limiter = new ClientRateLimiter(1, 1, 10);
+        long now = 1_000_000 * MILLIS;
+        for (int client = 0; client < 10; client++) {
+            limiter.tryAcquire("client-" + client, now);
+        }
+
+        limiter.tryAcquire("late", now + 5_000 * MILLIS);
+
+        assertThat(limiter.clients()).isEqualTo(1);
+    }
+
+    @Test
+    void should_share_one_bucket_among_new_clients_once_the_table_is_full() {
+        var limiter = new ClientRateLimiter(1, 1, 2);
+        long now = 1_000_000 * MILLIS;
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now);
+
+        assertThat(limiter.tryAcquire("c", now)).isZero();
+        assertThat(limiter.tryAcquire("d", now)).isPositive();
+        assertThat(limiter.tryAcquire("e", now)).isPositive();
+        assertThat(limiter.clients()).isEqualTo(2);
+    }
+}
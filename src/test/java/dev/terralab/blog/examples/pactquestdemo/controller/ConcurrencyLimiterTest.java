@@ -0,0 +1,37 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void should_reject_requests_over_the_limit_and_adapt_to_latency() {
+        var limiter = new ConcurrencyLimiter(4, 2, 8, 0.5);
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(THRESHOLD * 2, THRESHOLD);
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(THRESHOLD * 2, THRESHOLD * 4);
+        assertThat(limiter.limit()).isGreaterThan(2);
+        limiter.release(THRESHOLD * 2, THRESHOLD);
+        assertThat(limiter.limit()).isEqualTo(2);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.release(0, THRESHOLD);
+            limiter.tryAcquire();
+        }
+        assertThat(limiter.limit()).isGreaterThan(2).isLessThanOrEqualTo(8);
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,88 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestExportDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "quest.export.directory=target/test-exports")
+public class QuestExportTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void should_serve_the_export_whole_and_by_range() throws Exception {
+        for (long id = 1; id <= 20_000; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        HttpResponse<String> started = client.send(request("/quest/export").POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(started.statusCode()).isEqualTo(202);
+        QuestExportDto export = objectMapper.readValue(started.body(), QuestExportDto.class);
+        for (int attempt = 0; attempt < 200 && export.state().equals("RUNNING"); attempt++) {
+            Thread.sleep(50);
+            export = objectMapper.readValue(client.send(request("/quest/export").build(), HttpResponse.BodyHandlers.ofString()).body(),
+                    QuestExportDto.class);
+        }
+        assertThat(export.state()).isEqualTo("COMPLETED");
+        assertThat(export.quests()).isGreaterThanOrEqualTo(20_000);
+
+        HttpResponse<byte[]> whole = download(request("/quest/export/download"));
+        assertThat(whole.statusCode()).isEqualTo(200);
+        assertThat(whole.headers().firstValue("Accept-Ranges")).hasValue("bytes");
+        assertThat(whole.body()).hasSize((int) export.bytes());
+        String etag = whole.headers().firstValue("ETag").orElseThrow();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(whole.body()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().count()).isEqualTo(export.quests());
+        }
+
+        int from = whole.body().length / 3;
+        HttpResponse<byte[]> rest = download(request("/quest/export/download").header("Range", "bytes=" + from + "-").header("If-Range", etag));
+        assertThat(rest.statusCode()).isEqualTo(206);
+        assertThat(rest.headers().firstValue("Content-Range")).hasValue("bytes " + from + "-" + (export.bytes() - 1) + "/" + export.bytes());
+        assertThat(rest.body()).isEqualTo(Arrays.copyOfRange(whole.body(), from, whole.body().length));
+
+        HttpResponse<byte[]> middle = download(request("/quest/export/download").header("Range", "bytes=10-19"));
+        assertThat(middle.statusCode()).isEqualTo(206);
+        assertThat(middle.body()).isEqualTo(Arrays.copyOfRange(whole.body(), 10, 20));
+
+        assertThat(download(request("/quest/export/download").header("Range", "bytes=" + from + "-").header("If-Range", "\"stale\"")).statusCode())
+                .isEqualTo(200);
+        HttpResponse<byte[]> unsatisfiable = download(request("/quest/export/download").header("Range", "bytes=" + export.bytes() + "-"));
+        assertThat(unsatisfiable.statusCode()).isEqualTo(416);
+        assertThat(unsatisfiable.headers().firstValue("Content-Range")).hasValue("bytes */" + export.bytes());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+
+    private HttpResponse<byte[]> download(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
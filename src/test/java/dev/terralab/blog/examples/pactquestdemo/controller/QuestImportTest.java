@@ -0,0 +1,80 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportReportDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class QuestImportTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void should_create_a_quest_with_the_next_free_id() throws Exception {
+        HttpResponse<String> response = post("/quest", "application/json", "{\"name\":\"Gather herbs\",\"reward\":\"10 XP\"}");
+
+        assertThat(response.statusCode()).isEqualTo(201);
+        QuestResponseDto quest = objectMapper.readValue(response.body(), QuestResponseDto.class);
+        assertThat(quest.id()).isEqualTo(repository.maxId());
+        assertThat(quest.status()).isEqualTo("NOT_STARTED");
+        assertThat(response.headers().firstValue("Location")).hasValue("/quest/" + quest.id());
+
+        assertThat(post("/quest", "application/json", "{\"name\":\"Gather herbs\",\"status\":\"ON_HOLD\"}").statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void should_import_ndjson_and_csv_bodies() throws Exception {
+        HttpResponse<String> ndjson = post("/quest/import", "application/x-ndjson", """
+                {"id":9001,"name":"Slay the dragon","status":"IN_PROGRESS"}
+                {"id":9002,"name":"Find the ring","status":"ON_HOLD"}
+                """);
+        HttpResponse<String> csv = post("/quest/import", "text/csv; charset=UTF-8", """
+                id,name,status,reward
+                9003,"Rescue the cat, again",COMPLETED,5 XP
+                """);
+
+        assertThat(ndjson.statusCode()).isEqualTo(200);
+        QuestImportReportDto ndjsonReport = objectMapper.readValue(ndjson.body(), QuestImportReportDto.class);
+        assertThat(ndjsonReport.imported()).isEqualTo(1);
+        assertThat(ndjsonReport.failed()).isEqualTo(1);
+        assertThat(ndjsonReport.errors().getFirst().line()).isEqualTo(2);
+
+        assertThat(csv.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readValue(csv.body(), QuestImportReportDto.class).imported()).isEqualTo(1);
+        assertThat(repository.findById(9001L)).isPresent();
+        assertThat(repository.findById(9002L)).isEmpty();
+        assertThat(repository.findById(9003L)).get().extracting(Quest::getName).isEqualTo("Rescue the cat, again");
+
+        assertThat(post("/quest/import", "application/xml", "<quests/>").statusCode()).isEqualTo(415);
+    }
+
+    private HttpResponse<String> post(String path, String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,73 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class QuestPagingTest {
+
+    private static final TypeReference<List<QuestResponseDto>> QUEST_LIST = new TypeReference<>() {
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void should_page_after_an_id_and_link_the_next_page() throws Exception {
+        for (long id = 9401; id <= 9405; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, null));
+        }
+
+        HttpResponse<byte[]> page = get("/quest?after=9401&limit=2");
+
+        assertThat(page.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readValue(page.body(), QUEST_LIST)).extracting(QuestResponseDto::id).containsExactly(9402L, 9403L);
+        assertThat(page.headers().firstValue("Link")).hasValue("</quest?after=9403&limit=2>; rel=\"next\"");
+    }
+
+    @Test
+    void should_stream_when_asked_to_even_with_a_limit() throws Exception {
+        repository.save(new Quest(9501L, "Quest 9501", Status.NOT_STARTED, null));
+
+        HttpResponse<byte[]> streamed = get("/quest?stream=true&limit=1");
+
+        assertThat(streamed.statusCode()).isEqualTo(200);
+        assertThat(streamed.headers().firstValue("Link")).isEmpty();
+        assertThat(objectMapper.readValue(streamed.body(), QUEST_LIST)).hasSize(repository.findAll().size());
+    }
+
+    @Test
+    void should_reject_after_without_a_limit() throws Exception {
+        assertThat(get("/quest?after=1").statusCode()).isEqualTo(400);
+        assertThat(get("/quest?stream=true&after=1").statusCode()).isEqualTo(400);
+    }
+
+    private HttpResponse<byte[]> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,64 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties.Concurrency;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties.Limit;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties.Node;
+import dev.terralab.blog.examples.pactquestdemo.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuestRateLimitInterceptorTest {
+
+    private final QuestRateLimitInterceptor interceptor = new QuestRateLimitInterceptor(new QuestRateLimitProperties(
+            true, "X-Client-Id", List.of("10.0.0.1"), 100, Map.of("put-quest", new Limit(0.001, 1)),
+            Map.of(), new Limit(20, 40),
+            new Concurrency(false, 64, 8, 512, Duration.ofMillis(250), Map.of(), 0.9)),
+            new QuestShardingProperties(true, "a", List.of(new Node("a", URI.create("http://10.0.0.2:8080")),
+                    new Node("b", URI.create("http://10.0.0.3:8080"))), 128, Duration.ofSeconds(2)));
+
+    private final HandlerMethod putQuest = new HandlerMethod(new Object(), Stream.of(QuestController.class.getMethods())
+            .filter(method -> method.getName().equals("putQuest")).findFirst().orElseThrow());
+
+    @Test
+    void should_ignore_the_client_header_from_untrusted_addresses() {
+        assertThatCode(() -> put("10.0.0.7", "first")).doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> put("10.0.0.7", "second")).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void should_key_on_the_client_header_from_trusted_proxies() {
+        assertThatCode(() -> put("10.0.0.1", "first")).doesNotThrowAnyException();
+        assertThatCode(() -> put("10.0.0.1", "second")).doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> put("10.0.0.1", "first")).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void should_trust_the_client_header_from_other_shard_nodes() {
+        assertThatCode(() -> put("10.0.0.3", "first")).doesNotThrowAnyException();
+        assertThatCode(() -> put("10.0.0.3", "second")).doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> put("10.0.0.2", "second")).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    private void put(String remoteAddress, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/quest/1");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Client-Id", client);
+        interceptor.preHandle(request, new MockHttpServletResponse(), putQuest);
+    }
+}
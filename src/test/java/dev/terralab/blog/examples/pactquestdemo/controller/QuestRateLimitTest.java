@@ -0,0 +1,156 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "quest.rate-limit.enabled=true",
+        "quest.rate-limit.trusted-proxies=127.0.0.1,::1",
+        "quest.rate-limit.endpoints.get-quest.permits-per-second=200",
+        "quest.rate-limit.endpoints.get-quest.burst=20",
+        "quest.rate-limit.endpoints.put-quest.permits-per-second=50",
+        "quest.rate-limit.endpoints.put-quest.burst=10",
+        "quest.rate-limit.endpoints.get-quests.permits-per-second=1",
+        "quest.rate-limit.endpoints.get-quests.burst=5",
+        "quest.rate-limit.default-limit.permits-per-second=1",
+        "quest.rate-limit.default-limit.burst=5"
+})
+public class QuestRateLimitTest {
+
+    private static final int ABUSIVE_THREADS = 8;
+    private static final int WELL_BEHAVED_REQUESTS = 300;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void should_keep_latency_bounded_for_well_behaved_clients_under_an_abusive_neighbour() throws Exception {
+        for (long id = 1; id <= 100; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        var running = new AtomicBoolean(true);
+        var abusiveRejections = new AtomicInteger();
+        ExecutorService abusers = Executors.newFixedThreadPool(ABUSIVE_THREADS);
+        List<Future<?>> flood = new ArrayList<>();
+        try {
+            for (int t = 0; t < ABUSIVE_THREADS; t++) {
+                flood.add(abusers.submit(() -> {
+                    while (running.get()) {
+                        long id = ThreadLocalRandom.current().nextLong(1, 101);
+                        if (get("/quest/" + id, "abuser").statusCode() == 429) {
+                            abusiveRejections.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long[] latencies = new long[WELL_BEHAVED_REQUESTS];
+            int rejected = 0;
+            for (int i = 0; i < WELL_BEHAVED_REQUESTS; i++) {
+                long start = System.nanoTime();
+                HttpResponse<String> response = get("/quest/" + (i % 100 + 1), "good");
+                latencies[i] = System.nanoTime() - start;
+                if (response.statusCode() == 429) {
+                    rejected++;
+                }
+                Thread.sleep(10);
+            }
+            running.set(false);
+            for (Future<?> future : flood) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            Arrays.sort(latencies);
+            long p99 = TimeUnit.NANOSECONDS.toMillis(latencies[(int) (WELL_BEHAVED_REQUESTS * 0.99) - 1]);
+            assertThat(rejected).isZero();
+            assertThat(abusiveRejections.get()).isPositive();
+            assertThat(p99).isLessThan(250);
+        } finally {
+            running.set(false);
+            abusers.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_reject_with_too_many_requests_once_the_bucket_is_empty() throws Exception {
+        repository.save(new Quest(500L, "Quest 500", Status.NOT_STARTED, "100 XP"));
+        HttpResponse<String> response = null;
+        for (int i = 0; i < 100; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/quest/500"))
+                    .header("X-Client-Id", "burst")
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"status\":\"NOT_STARTED\"}"))
+                    .build();
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 429) {
+                break;
+            }
+        }
+
+        assertThat(response.statusCode()).isEqualTo(429);
+        assertThat(response.headers().firstValue("Retry-After")).contains("1");
+        assertThat(response.body()).isEqualTo("{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Rate limit exceeded for put-quest\"}");
+    }
+
+    @Test
+    void should_charge_every_quest_list_variant_to_the_list_bucket() throws Exception {
+        assertThat(getUntilRejected("/quest?stream=true", "streamer").body())
+                .isEqualTo("{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Rate limit exceeded for get-quests\"}");
+        assertThat(getUntilRejected("/quest?limit=10", "pager").statusCode()).isEqualTo(429);
+        assertThat(get("/quest", "pager").statusCode()).isEqualTo(429);
+    }
+
+    @Test
+    void should_apply_the_default_limit_to_endpoints_without_one() throws Exception {
+        assertThat(getUntilRejected("/quest/count", "counter").body())
+                .isEqualTo("{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"Rate limit exceeded for count-quests\"}");
+    }
+
+    private HttpResponse<String> getUntilRejected(String path, String clientId) throws Exception {
+        HttpResponse<String> response = null;
+        for (int i = 0; i < 20; i++) {
+            response = get(path, clientId);
+            if (response.statusCode() == 429) {
+                break;
+            }
+        }
+        assertThat(response.statusCode()).isEqualTo(429);
+        return response;
+    }
+
+    private HttpResponse<String> get(String path, String clientId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("X-Client-Id", clientId)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
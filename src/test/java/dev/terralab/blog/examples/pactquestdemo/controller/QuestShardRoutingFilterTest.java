@@ -0,0 +1,187 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestRateLimitProperties.Concurrency;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestShardingProperties.Node;
+import dev.terralab.blog.examples.pactquestdemo.dto.ErrorResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestShardRoutingFilterTest {
+
+    private static final TypeReference<List<QuestResponseDto>> QUEST_LIST = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+    private final List<HttpServer> servers = new ArrayList<>();
+    private QuestShardRoutingFilter filter;
+
+    /**
+     * What a stub node answers to {@code GET /quest}; {@code stall} keeps the connection open
+     * after the body.
+     */
+    private record Shard(String contentType, byte[] body, String etag, boolean stall) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        for (String node : List.of("a", "b")) {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/quest", exchange -> answer(shards.get(node), exchange));
+            server.setExecutor(executor);
+            server.start();
+            servers.add(server);
+            nodes.add(new Node(node, URI.create("http://localhost:" + server.getAddress().getPort())));
+        }
+        QuestShardingProperties sharding = new QuestShardingProperties(true, "a", nodes, 16, Duration.ofMillis(500));
+        QuestRateLimitInterceptor rateLimiter = new QuestRateLimitInterceptor(new QuestRateLimitProperties(false, "", List.of(), 100,
+                Map.of(), Map.of(), null, new Concurrency(false, 64, 8, 512, Duration.ofMillis(250), Map.of(), 0.9)), sharding);
+        filter = new QuestShardRoutingFilter(sharding, rateLimiter, objectMapper, new QuestMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+        executor.shutdownNow();
+        filter.destroy();
+    }
+
+    @Test
+    void should_merge_shard_lists_in_id_order_with_a_combined_etag() throws Exception {
+        shards.put("a", json(quests(1, 3, 4, 9), "\"a-1\""));
+        shards.put("b", json(quests(2, 5, 6, 7, 8), "\"b-1\""));
+
+        MockHttpServletResponse response = get(null, null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(objectMapper.readValue(response.getContentAsByteArray(), QUEST_LIST))
+                .isEqualTo(quests(LongStream.rangeClosed(1, 9).toArray()));
+        String etag = response.getHeader("ETag");
+        assertThat(etag).startsWith("\"shards-");
+
+        MockHttpServletResponse unchanged = get(null, etag);
+        assertThat(unchanged.getStatus()).isEqualTo(304);
+        assertThat(unchanged.getContentLength()).isZero();
+
+        shards.put("b", json(quests(2, 5, 6, 7, 8), "\"b-2\""));
+        MockHttpServletResponse changed = get(null, etag);
+        assertThat(changed.getStatus()).isEqualTo(200);
+        assertThat(changed.getHeader("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    void should_merge_in_the_negotiated_format() throws Exception {
+        CBORMapper cbor = new CBORMapper();
+        shards.put("a", new Shard("application/cbor", cbor.writeValueAsBytes(quests(2, 4)), "\"a-1\"", false));
+        shards.put("b", new Shard("application/cbor", cbor.writeValueAsBytes(quests(1, 3)), "\"b-1\"", false));
+
+        MockHttpServletResponse response = get("application/cbor", null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/cbor");
+        assertThat(cbor.readValue(response.getContentAsByteArray(), QUEST_LIST)).isEqualTo(quests(1, 2, 3, 4));
+    }
+
+    @Test
+    void should_answer_bad_gateway_when_a_shard_list_is_unreadable() throws Exception {
+        shards.put("a", json(quests(1, 2), "\"a-1\""));
+        shards.put("b", new Shard("application/json", "[{\"id\":3,".getBytes(), "\"b-1\"", false));
+
+        MockHttpServletResponse response = get(null, null);
+
+        assertThat(response.getStatus()).isEqualTo(502);
+        assertThat(objectMapper.readValue(response.getContentAsByteArray(), ErrorResponseDto.class).code()).isEqualTo("BAD_GATEWAY");
+    }
+
+    @Test
+    void should_cut_off_a_shard_that_stalls_mid_list() throws Exception {
+        shards.put("a", json(quests(1, 2), "\"a-1\""));
+        shards.put("b", new Shard("application/json", "[{\"id\":3,\"name\":\"Quest 3\",\"status\":\"NOT_STARTED\",\"reward\":null},".getBytes(),
+                "\"b-1\"", true));
+
+        long start = System.nanoTime();
+        MockHttpServletResponse response = get(null, null);
+
+        assertThat(response.getStatus()).isEqualTo(502);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    private MockHttpServletResponse get(String accept, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/quest");
+        request.setAsyncSupported(true);
+        if (accept != null) {
+            request.addHeader("Accept", accept);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (request.isAsyncStarted() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(request.isAsyncStarted()).isFalse();
+        return response;
+    }
+
+    private Shard json(List<QuestResponseDto> quests, String etag) throws IOException {
+        return new Shard("application/json", objectMapper.writeValueAsBytes(quests), etag, false);
+    }
+
+    private static List<QuestResponseDto> quests(long... ids) {
+        return LongStream.of(ids).mapToObj(id -> new QuestResponseDto(id, "Quest " + id, "NOT_STARTED", null)).toList();
+    }
+
+    private static void answer(Shard shard, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            if (!shard.contentType().equals(accept)) {
+                exchange.sendResponseHeaders(406, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", shard.contentType());
+            exchange.getResponseHeaders().add("ETag", shard.etag());
+            exchange.sendResponseHeaders(200, shard.stall() ? 0 : shard.body().length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(shard.body());
+            body.flush();
+            if (shard.stall()) {
+                Thread.sleep(3000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import dev.terralab.blog.examples.pactquestdemo.PactQuestDemoApplication;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestShardRing;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestShardingTest {
+
+    private static final List<String> NODES = List.of("node-1", "node-2", "node-3");
+    private static final int QUESTS = 30;
+
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static final List<Integer> ports = new ArrayList<>();
+    private static final QuestShardRing ring = new QuestShardRing(NODES, 128);
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        for (int i = 0; i < NODES.size(); i++) {
+            ports.add(freePort());
+        }
+        for (int i = 0; i < NODES.size(); i++) {
+            List<String> properties = new ArrayList<>(List.of(
+                    "server.port=" + ports.get(i),
+                    "spring.datasource.url=jdbc:h2:mem:" + NODES.get(i),
+                    "spring.jmx.enabled=false",
+                    "quest.sharding.enabled=true",
+                    "quest.rate-limit.enabled=true",
+                    "quest.rate-limit.endpoints.get-quest.permits-per-second=0.1",
+                    "quest.rate-limit.endpoints.get-quest.burst=5",
+                    "quest.sharding.self=" + NODES.get(i)));
+            for (int n = 0; n < NODES.size(); n++) {
+                properties.add("quest.sharding.nodes[" + n + "].name=" + NODES.get(n));
+                properties.add("quest.sharding.nodes[" + n + "].url=http://localhost:" + ports.get(n));
+            }
+            contexts.add(new SpringApplicationBuilder(PactQuestDemoApplication.class)
+                    .properties(properties.toArray(String[]::new))
+                    .run());
+        }
+        for (long id = 1; id <= QUESTS; id++) {
+            repositoryOf(ring.ownerOf(id)).save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void should_forward_updates_to_the_owning_node() throws Exception {
+        long id = idNotOwnedBy("node-1");
+
+        HttpResponse<String> response = put(0, id, "{\"status\":\"IN_PROGRESS\"}");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("{\"id\":" + id + ",\"name\":\"Quest " + id + "\",\"status\":\"IN_PROGRESS\",\"reward\":\"100 XP\"}");
+        assertThat(repositoryOf(ring.ownerOf(id)).findById(id)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        assertThat(repositoryOf("node-1").findById(id)).isEmpty();
+        assertThat(get(2, "/quest/" + id).body()).contains("\"status\":\"IN_PROGRESS\"");
+    }
+
+    @Test
+    void should_relay_errors_from_the_owning_node() throws Exception {
+        long id = LongStream.iterate(QUESTS, i -> i - 1).filter(i -> !ring.ownerOf(i).equals("node-2")).findFirst().orElseThrow();
+        put(1, id, "{\"status\":\"IN_PROGRESS\"}");
+        put(1, id, "{\"status\":\"COMPLETED\"}");
+
+        HttpResponse<String> response = put(1, id, "{\"status\":\"IN_PROGRESS\"}");
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).isEqualTo("{\"code\":\"INVALID_ACTION\",\"message\":\"Quest is already completed\"}");
+    }
+
+    @Test
+    void should_gather_quests_from_every_shard_in_id_order() throws Exception {
+        for (int node = 0; node < NODES.size(); node++) {
+            HttpResponse<String> response = get(node, "/quest");
+
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(ids(response.body())).containsExactlyElementsOf(LongStream.rangeClosed(1, QUESTS).boxed().toList());
+        }
+    }
+
+    @Test
+    void should_reject_creating_and_importing_quests() throws Exception {
+        HttpResponse<String> create = post(0, "/quest", "application/json", "{\"name\":\"Gather herbs\"}");
+        HttpResponse<String> importing = post(1, "/quest/import", "application/x-ndjson", "{\"name\":\"Gather herbs\"}\n");
+
+        assertThat(create.statusCode()).isEqualTo(501);
+        assertThat(create.body()).contains("\"code\":\"NOT_IMPLEMENTED\"");
+        assertThat(importing.statusCode()).isEqualTo(501);
+        for (String node : NODES) {
+            assertThat(repositoryOf(node).maxId()).isLessThanOrEqualTo(QUESTS);
+        }
+    }
+
+    @Test
+    void should_reject_requests_a_single_shard_cannot_answer() throws Exception {
+        for (String path : List.of("/quest?limit=10", "/quest?after=1&limit=10", "/quest?stream=true", "/quest/count", "/quest/events")) {
+            HttpResponse<String> response = get(0, path);
+
+            assertThat(response.statusCode()).as(path).isEqualTo(501);
+            assertThat(response.body()).as(path).contains("\"code\":\"NOT_IMPLEMENTED\"");
+        }
+        long id = idNotOwnedBy("node-1");
+        HttpRequest patch = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(0) + "/quest"))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("[{\"id\":" + id + ",\"status\":\"IN_PROGRESS\"}]"))
+                .build();
+
+        assertThat(client.send(patch, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(501);
+    }
+
+    @Test
+    void should_rate_limit_routed_requests_per_client() throws Exception {
+        long id = LongStream.rangeClosed(1, QUESTS).filter(i -> ring.ownerOf(i).equals("node-3")).findFirst().orElseThrow();
+        for (String client : List.of("alice", "bob")) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(get(0, "/quest/" + id, client).statusCode()).as(client).isEqualTo(200);
+            }
+        }
+
+        HttpResponse<String> rejected = get(1, "/quest/" + id, "alice");
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.body()).contains("\"code\":\"TOO_MANY_REQUESTS\"");
+    }
+
+    private static long idNotOwnedBy(String node) {
+        return LongStream.rangeClosed(1, QUESTS).filter(id -> !ring.ownerOf(id).equals(node)).findFirst().orElseThrow();
+    }
+
+    private static QuestRepository repositoryOf(String node) {
+        return contexts.get(NODES.indexOf(node)).getBean(QuestRepository.class);
+    }
+
+    private static List<Long> ids(String json) {
+        List<Long> ids = new ArrayList<>();
+        for (String part : json.split("\"id\":")) {
+            if (!part.startsWith("[")) {
+                ids.add(Long.parseLong(part.substring(0, part.indexOf(','))));
+            }
+        }
+        return ids;
+    }
+
+    private HttpResponse<String> get(int node, String path) throws Exception {
+        return get(node, path, "tester");
+    }
+
+    private HttpResponse<String> get(int node, String path, String clientId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(node) + path))
+                .header("X-Client-Id", clientId)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> put(int node, long id, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(node) + "/quest/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(int node, String path, String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(node) + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dev.terralab.blog.examples.pactquestdemo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateResultDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class QuestWireFormatTest {
+
+    private static final TypeReference<List<QuestResponseDto>> QUEST_LIST = new TypeReference<>() {
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void should_pick_the_preferred_format_and_default_to_json() {
+        assertThat(QuestWireFormat.negotiate(null)).isEqualTo(QuestWireFormat.JSON);
+        assertThat(QuestWireFormat.negotiate("*/*")).isEqualTo(QuestWireFormat.JSON);
+        assertThat(QuestWireFormat.negotiate("not a type")).isEqualTo(QuestWireFormat.JSON);
+        assertThat(QuestWireFormat.negotiate("application/cbor")).isEqualTo(QuestWireFormat.CBOR);
+        assertThat(QuestWireFormat.negotiate("application/json;q=0.5, application/x-jackson-smile")).isEqualTo(QuestWireFormat.SMILE);
+        assertThat(QuestWireFormat.negotiate("application/cbor;q=0.9, application/*")).isEqualTo(QuestWireFormat.JSON);
+        assertThat(QuestWireFormat.negotiate("application/json;q=0, */*")).isEqualTo(QuestWireFormat.CBOR);
+        assertThat(QuestWireFormat.CBOR.eTag("\"1-a\"")).isEqualTo("\"1-a-cbor\"");
+    }
+
+    @Test
+    void should_serve_the_same_quests_in_every_format() throws Exception {
+        for (long id = 9201; id <= 9210; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, id % 2 == 0 ? null : "10 XP"));
+        }
+        HttpResponse<byte[]> json = get("/quest", null);
+        assertThat(json.headers().firstValue("Content-Type")).hasValue("application/json");
+        List<QuestResponseDto> quests = objectMapper.readValue(json.body(), QUEST_LIST);
+
+        HttpResponse<byte[]> cbor = get("/quest", "application/cbor");
+        HttpResponse<byte[]> smile = get("/quest", "application/x-jackson-smile");
+
+        assertThat(cbor.headers().firstValue("Content-Type")).hasValue("application/cbor");
+        assertThat(new CBORMapper().readValue(cbor.body(), QUEST_LIST)).isEqualTo(quests);
+        assertThat(smile.headers().firstValue("Content-Type")).hasValue("application/x-jackson-smile");
+        assertThat(new SmileMapper().readValue(smile.body(), QUEST_LIST)).isEqualTo(quests);
+        assertThat(cbor.body().length).isLessThan(json.body().length);
+        assertThat(smile.body().length).isLessThan(json.body().length);
+
+        String etag = cbor.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).isNotEqualTo(json.headers().firstValue("ETag").orElseThrow());
+        assertThat(cbor.headers().firstValue("Vary")).hasValue("Accept");
+        HttpResponse<byte[]> notModified = client.send(request("/quest").header("Accept", "application/cbor")
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(notModified.statusCode()).isEqualTo(304);
+
+        HttpResponse<byte[]> quest = get("/quest/9201", "application/cbor");
+        assertThat(new CBORMapper().readValue(quest.body(), QuestResponseDto.class))
+                .isEqualTo(new QuestResponseDto(9201L, "Quest 9201", "NOT_STARTED", "10 XP"));
+    }
+
+    @Test
+    void should_change_the_quest_etag_when_fields_with_equal_hash_codes_change() throws Exception {
+        repository.save(new Quest(9401L, "Aa", Status.NOT_STARTED, "10 XP"));
+        String etag = get("/quest/9401", null).headers().firstValue("ETag").orElseThrow();
+        repository.save(new Quest(9401L, "BB", Status.NOT_STARTED, "10 XP"));
+
+        HttpResponse<byte[]> changed = client.send(request("/quest/9401").header("If-None-Match", etag).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.headers().firstValue("ETag")).isPresent().get().isNotEqualTo(etag);
+    }
+
+    @Test
+    void should_accept_binary_updates() throws Exception {
+        repository.save(new Quest(9301L, "Quest 9301", Status.NOT_STARTED, null));
+        repository.save(new Quest(9302L, "Quest 9302", Status.NOT_STARTED, null));
+        CBORMapper cbor = new CBORMapper();
+        SmileMapper smile = new SmileMapper();
+
+        HttpResponse<byte[]> put = client.send(request("/quest/9301")
+                .header("Content-Type", "application/cbor").header("Accept", "application/cbor")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(cbor.writeValueAsBytes(new QuestUpdateRequestDto("IN_PROGRESS"))))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> patch = client.send(request("/quest")
+                .header("Content-Type", "application/x-jackson-smile").header("Accept", "application/x-jackson-smile")
+                .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(smile.writeValueAsBytes(List.of(
+                        new QuestBatchUpdateRequestDto(9302L, "IN_PROGRESS"), new QuestBatchUpdateRequestDto(9399L, "COMPLETED")))))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(put.statusCode()).isEqualTo(200);
+        assertThat(cbor.readValue(put.body(), QuestResponseDto.class).status()).isEqualTo("IN_PROGRESS");
+        assertThat(patch.statusCode()).isEqualTo(200);
+        List<QuestBatchUpdateResultDto> results = smile.readValue(patch.body(), new TypeReference<>() {
+        });
+        assertThat(results.get(0).quest().status()).isEqualTo("IN_PROGRESS");
+        assertThat(results.get(1).success()).isFalse();
+        assertThat(results.get(1).error().code()).isEqualTo("NOT_FOUND");
+        assertThat(repository.findById(9302L)).map(Quest::getStatus).hasValue(Status.IN_PROGRESS);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept) throws Exception {
+        HttpRequest.Builder request = request(path);
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response;
+    }
+}
@@ -0,0 +1,46 @@
+package dev.terralab.blog.examples.pactquestdemo.domain;
+
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class StatusTest {
+
+    @Test
+    void should_parse_every_status_by_name() {
+        for (Status status : Status.values()) {
+            assertThat(Status.from(status.name())).isSameAs(status);
+        }
+    }
+
+    @Test
+    void should_reject_unknown_status_without_stack_trace() {
+        assertThatThrownBy(() -> Status.from("in_progress"))
+                .isInstanceOf(InvalidStatusException.class)
+                .hasMessage("Invalid status")
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        assertThatThrownBy(() -> Status.from(null))
+                .isInstanceOf(InvalidStatusException.class)
+                .hasMessage("Invalid status");
+        assertThat(catchThrowable(() -> Status.from("ON_HOLD"))).isSameAs(catchThrowable(() -> Status.from("")));
+    }
+
+    @Test
+    void should_only_allow_forward_transitions() {
+        assertThat(Status.NOT_STARTED.canTransitionTo(Status.IN_PROGRESS)).isTrue();
+        assertThat(Status.IN_PROGRESS.canTransitionTo(Status.COMPLETED)).isTrue();
+
+        assertThat(Status.NOT_STARTED.canTransitionTo(Status.NOT_STARTED)).isFalse();
+        assertThat(Status.NOT_STARTED.canTransitionTo(Status.COMPLETED)).isFalse();
+        assertThat(Status.IN_PROGRESS.canTransitionTo(Status.NOT_STARTED)).isFalse();
+        assertThat(Status.IN_PROGRESS.canTransitionTo(Status.IN_PROGRESS)).isFalse();
+        for (Status next : Status.values()) {
+            assertThat(Status.COMPLETED.canTransitionTo(next)).isFalse();
+        }
+        assertThat(Status.COMPLETED.isFinal()).isTrue();
+        assertThat(Status.IN_PROGRESS.isFinal()).isFalse();
+    }
+}
@@ -0,0 +1,231 @@
+package dev.terralab.blog.examples.pactquestdemo.load;
+
+import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.QuestManagerClient;
+import dev.terralab.blog.examples.pactquestdemo.contract.consumer.client.base.ApiResponse;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the quest API, built on {@link QuestManagerClient}. Requests
+ * are started on a fixed schedule at the configured rate, whether or not earlier requests
+ * have completed, and each one is a {@code GET /quest/{id}} for a random id or, with
+ * probability {@code putRatio}, a {@code PUT /quest/{id}} that moves the next quest one step
+ * along its lifecycle. With {@code seed} set, quests {@code 1..quests} are first imported as
+ * {@code NOT_STARTED}, and PUTs start every quest before completing any, so each PUT is a
+ * valid transition as long as the run needs no more than two per quest.
+ * <p>
+ * Response time is measured from the moment the schedule says a request should have been
+ * sent, not from when it actually was, so a stall on either side shows up as latency for
+ * every request it delayed instead of being hidden by the requests that were never sent
+ * (coordinated omission). Once {@code maxInFlight} requests are outstanding, the next one
+ * waits for a free slot and is sent late rather than skipped, so the wait counts as well.
+ * Service time, measured from the actual send, is reported next to it; a large gap between
+ * the two means the generator itself fell behind.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *   -Dbenchmark.main=dev.terralab.blog.examples.pactquestdemo.load.QuestLoadGenerator \
+ *   -Dbenchmark.args= -Dbenchmark.jvm.args="-Dload.url=http://localhost:8080 -Dload.rate=2000"
+ * </pre>
+ * or {@code make load-test LOAD_TEST_ARGS="-Dload.rate=2000"}.
+ */
+public class QuestLoadGenerator {
+
+    private static final String[] PUT_STATUSES = {"IN_PROGRESS", "COMPLETED"};
+    private static final int SEED_BATCH = 10_000;
+
+    public enum Operation {GET, PUT}
+
+    public record Config(String baseUrl, double rate, Duration duration, Duration warmup, double putRatio,
+                         long quests, int maxInFlight, boolean seed) {
+    }
+
+    private final Config config;
+    private final AtomicLong puts = new AtomicLong();
+
+    public QuestLoadGenerator(Config config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = new Config(
+                System.getProperty("load.url", "http://localhost:8080"),
+                Double.parseDouble(System.getProperty("load.rate", "1000")),
+                Duration.parse("PT" + System.getProperty("load.duration", "30s")),
+                Duration.parse("PT" + System.getProperty("load.warmup", "10s")),
+                Double.parseDouble(System.getProperty("load.put-ratio", "0.2")),
+                Long.getLong("load.quests", 10_000),
+                Integer.getInteger("load.max-in-flight", 10_000),
+                Boolean.parseBoolean(System.getProperty("load.seed", "true")));
+        Report report = new QuestLoadGenerator(config).run();
+        report.print(System.out);
+        Path histograms = Path.of(System.getProperty("load.histogram-dir", "target/load-report"));
+        report.writeHistograms(histograms);
+        System.out.println("\nPercentile distributions written to " + histograms.toAbsolutePath());
+    }
+
+    public Report run() throws IOException, InterruptedException {
+        double seconds = (config.warmup().toNanos() + config.duration().toNanos()) / 1e9;
+        if (config.seed() && config.putRatio() * config.rate() * seconds > 2.0 * config.quests()) {
+            throw new IllegalArgumentException("The run sends more PUTs than the quests have transitions, raise load.quests");
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            if (config.seed()) {
+                seed(httpClient);
+            }
+            QuestManagerClient client = new QuestManagerClient(config.baseUrl(), httpClient);
+            if (!config.warmup().isZero()) {
+                drive(client, config.warmup());
+            }
+            return drive(client, config.duration());
+        }
+    }
+
+    /**
+     * Imports quests {@code 1..quests} as {@code NOT_STARTED}, replacing any stored quest with
+     * the same id.
+     */
+    private void seed(HttpClient httpClient) throws IOException, InterruptedException {
+        for (long from = 1; from <= config.quests(); from += SEED_BATCH) {
+            StringBuilder body = new StringBuilder();
+            for (long id = from; id < from + SEED_BATCH && id <= config.quests(); id++) {
+                body.append("{\"id\":").append(id).append(",\"name\":\"Load quest ").append(id)
+                        .append("\",\"status\":\"NOT_STARTED\",\"reward\":\"100 XP\"}\n");
+            }
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(config.baseUrl() + "/quest/import"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding quests failed with status " + response.statusCode() + ": " + response.body());
+            }
+        }
+    }
+
+    private Report drive(QuestManagerClient client, Duration duration) throws InterruptedException {
+        Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+        Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, new ConcurrentHistogram(3));
+            serviceTimes.put(operation, new ConcurrentHistogram(3));
+        }
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        long delayed = 0;
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.rate());
+        long requests = (long) (config.rate() * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                delayed++;
+                inFlight.acquire();
+            }
+            Operation operation = random.nextDouble() < config.putRatio() ? Operation.PUT : Operation.GET;
+            long sent = System.nanoTime();
+            CompletableFuture<? extends ApiResponse<?>> response;
+            if (operation == Operation.PUT) {
+                long put = puts.getAndIncrement();
+                response = client.updateQuestStatusAsync(Long.toString(put % config.quests() + 1),
+                        PUT_STATUSES[(int) (put / config.quests() % PUT_STATUSES.length)]);
+            } else {
+                response = client.getQuestAsync(Long.toString(random.nextLong(1, config.quests() + 1)));
+            }
+            response.whenComplete((answer, ignored) -> {
+                long end = System.nanoTime();
+                responseTimes.get(operation).recordValue(end - intended);
+                serviceTimes.get(operation).recordValue(end - sent);
+                statuses.computeIfAbsent(answer.status(), status -> new LongAdder()).increment();
+                inFlight.release();
+            });
+        }
+        long scheduled = System.nanoTime() - start;
+        if (!inFlight.tryAcquire(config.maxInFlight(), 30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Requests still in flight 30s after the run ended");
+        }
+
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return new Report(config.rate(), requests / (scheduled / 1e9), responseTimes, serviceTimes, statusCounts, delayed);
+    }
+
+    /**
+     * Times are recorded in nanoseconds and reported in milliseconds. Status 0 counts requests
+     * that got no response at all, and {@code delayed} those that had to wait for one of the
+     * {@code maxInFlight} outstanding requests to complete before they could be sent.
+     */
+    public record Report(double targetRate, double achievedRate, Map<Operation, Histogram> responseTimes,
+                         Map<Operation, Histogram> serviceTimes, Map<Integer, Long> statuses, long delayed) {
+
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+        public long requests() {
+            return responseTimes.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        }
+
+        public void print(PrintStream out) {
+            out.printf("%ntarget %.0f req/s, sent %.0f req/s, %d requests, %d delayed by the in-flight cap%n",
+                    targetRate, achievedRate, requests(), delayed);
+            out.printf("%n%-4s %-9s %9s %9s %9s %9s %9s %9s%n", "op", "time", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (Operation operation : Operation.values()) {
+                print(out, operation, "response", responseTimes.get(operation));
+                print(out, operation, "service", serviceTimes.get(operation));
+            }
+            out.printf("%nstatus codes: %s%n", statuses);
+        }
+
+        public void writeHistograms(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Operation operation : Operation.values()) {
+                write(directory.resolve(operation.name().toLowerCase() + "-response.hgrm"), responseTimes.get(operation));
+                write(directory.resolve(operation.name().toLowerCase() + "-service.hgrm"), serviceTimes.get(operation));
+            }
+        }
+
+        private static void print(PrintStream out, Operation operation, String time, Histogram histogram) {
+            out.printf("%-4s %-9s %9d", operation, time, histogram.getTotalCount());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1e6);
+            }
+            out.printf(" %9.2f%n", histogram.getMaxValue() / 1e6);
+        }
+
+        private static void write(Path file, Histogram histogram) throws IOException {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, 1e6);
+            }
+        }
+    }
+}
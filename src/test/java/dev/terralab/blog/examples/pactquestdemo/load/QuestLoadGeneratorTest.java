@@ -0,0 +1,60 @@
+package dev.terralab.blog.examples.pactquestdemo.load;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.load.QuestLoadGenerator.Config;
+import dev.terralab.blog.examples.pactquestdemo.load.QuestLoadGenerator.Operation;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class QuestLoadGeneratorTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Test
+    void should_drive_the_configured_rate_and_record_every_response() throws Exception {
+        var config = new Config("http://localhost:" + port, 200, Duration.ofSeconds(2), Duration.ofMillis(500), 0.2, 100, 1000, true);
+
+        var report = new QuestLoadGenerator(config).run();
+
+        assertThat(report.requests()).isEqualTo(400);
+        assertThat(report.delayed()).isZero();
+        assertThat(report.achievedRate()).isBetween(180.0, 220.0);
+        assertThat(report.statuses()).containsOnlyKeys(200);
+        assertThat(report.statuses().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(400);
+        assertThat(repository.findById(1L)).get().extracting(Quest::getStatus).isNotEqualTo(Status.NOT_STARTED);
+        assertThat(report.responseTimes().get(Operation.PUT).getTotalCount()).isPositive();
+        assertThat(report.responseTimes().get(Operation.GET).getValueAtPercentile(50))
+                .isGreaterThanOrEqualTo(report.serviceTimes().get(Operation.GET).getValueAtPercentile(50));
+    }
+
+    @Test
+    void should_record_requests_held_back_by_the_in_flight_cap() throws Exception {
+        var config = new Config("http://localhost:" + port, 200, Duration.ofSeconds(1), Duration.ZERO, 0, 100, 1, false);
+
+        var report = new QuestLoadGenerator(config).run();
+
+        assertThat(report.requests()).isEqualTo(200);
+        assertThat(report.statuses().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(200);
+    }
+
+    @Test
+    void should_refuse_a_run_with_more_puts_than_transitions() {
+        var config = new Config("http://localhost:" + port, 1000, Duration.ofSeconds(30), Duration.ofSeconds(10), 0.2, 10, 1000, true);
+
+        assertThatThrownBy(() -> new QuestLoadGenerator(config).run()).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarQuestRepositoryTest {
+
+    @Test
+    void should_page_through_all_quests_in_id_order() {
+        var repository = new ColumnarQuestRepository();
+        List<Quest> quests = new ArrayList<>();
+        for (long id = 1000; id >= 1; id--) {
+            quests.add(new Quest(id * 3, "Quest " + id, Status.values()[(int) (id % 3)], (id % 5) * 100 + " XP"));
+        }
+        repository.saveAll(quests);
+
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        List<Quest> page;
+        do {
+            page = repository.findAllAfter(after, 64);
+            page.forEach(quest -> ids.add(quest.getId()));
+            after = page.isEmpty() ? after : page.getLast().getId();
+        } while (page.size() == 64);
+
+        assertThat(ids).hasSize(1000).isSorted().doesNotHaveDuplicates();
+        assertThat(repository.findAllAfter(1500L, 2)).containsExactly(
+                new Quest(1503L, "Quest 501", Status.NOT_STARTED, "100 XP"),
+                new Quest(1506L, "Quest 502", Status.IN_PROGRESS, "200 XP"));
+        assertThat(repository.findAll()).hasSize(1000).containsAll(quests);
+    }
+
+    @Test
+    void should_overwrite_quests_and_keep_missing_fields_empty() {
+        var repository = new ColumnarQuestRepository();
+        repository.save(new Quest(7L, "Quest 7", Status.NOT_STARTED, "100 XP"));
+        repository.save(new Quest(7L, "Dragon hunt", Status.IN_PROGRESS, null));
+        repository.save(new Quest(8L, "Épreuve du feu", Status.COMPLETED, "100 XP"));
+
+        assertThat(repository.findById(7L)).contains(new Quest(7L, "Dragon hunt", Status.IN_PROGRESS, null));
+        assertThat(repository.findById(8L)).contains(new Quest(8L, "Épreuve du feu", Status.COMPLETED, "100 XP"));
+        assertThat(repository.findById(9L)).isEmpty();
+        assertThat(repository.findAllById(List.of(8L, 9L, 7L))).extracting(Quest::getId).containsExactly(8L, 7L);
+    }
+
+    @Test
+    void should_only_apply_status_change_when_expected_status_matches() {
+        var repository = new ColumnarQuestRepository();
+        repository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        List<Quest> before = repository.findAll();
+
+        assertThat(repository.compareAndSetStatus(1L, Status.IN_PROGRESS, Status.COMPLETED)).isFalse();
+        assertThat(repository.compareAndSetStatus(1L, Status.NOT_STARTED, Status.IN_PROGRESS)).isTrue();
+        assertThat(repository.compareAndSetStatus(2L, Status.NOT_STARTED, Status.IN_PROGRESS)).isFalse();
+
+        assertThat(repository.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        assertThat(before).extracting(Quest::getStatus).containsExactly(Status.NOT_STARTED);
+        assertThat(repository.findAll()).extracting(Quest::getStatus).containsExactly(Status.IN_PROGRESS);
+    }
+
+    @Test
+    void should_keep_the_status_index_in_step_with_writes() {
+        var repository = new ColumnarQuestRepository();
+        for (long id = 1; id <= 300; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        for (long id = 1; id <= 300; id += 3) {
+            repository.compareAndSetStatus(id, Status.NOT_STARTED, Status.IN_PROGRESS);
+        }
+        repository.save(new Quest(2L, "Quest 2", Status.COMPLETED, "100 XP"));
+        repository.saveAll(List.of(new Quest(1L, "Quest 1", Status.COMPLETED, "100 XP"), new Quest(301L, "Quest 301", Status.IN_PROGRESS, "100 XP")));
+
+        assertThat(repository.countByStatus(Status.NOT_STARTED)).isEqualTo(199);
+        assertThat(repository.countByStatus(Status.IN_PROGRESS)).isEqualTo(100);
+        assertThat(repository.countByStatus(Status.COMPLETED)).isEqualTo(2);
+        assertThat(repository.findAllByStatus(Set.of(Status.COMPLETED))).extracting(Quest::getId).containsExactly(1L, 2L);
+        assertThat(repository.findAllByStatus(Set.of(Status.IN_PROGRESS, Status.COMPLETED)))
+                .hasSize(102)
+                .extracting(Quest::getId).isSorted()
+                .contains(1L, 2L, 4L, 301L)
+                .doesNotContain(3L);
+        assertThat(repository.findAllByStatus(Set.of())).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryQuestRepositoryTest {
+
+    @Test
+    void should_page_through_all_quests_in_id_order() {
+        var repository = new InMemoryQuestRepository();
+        for (long id = 1000; id >= 1; id--) {
+            repository.save(new Quest(id * 3, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        List<Quest> page;
+        do {
+            page = repository.findAllAfter(after, 64);
+            page.forEach(quest -> ids.add(quest.getId()));
+            after = page.isEmpty() ? after : page.getLast().getId();
+        } while (page.size() == 64);
+
+        assertThat(ids).hasSize(1000).isSorted().doesNotHaveDuplicates();
+        assertThat(repository.findAllAfter(1500L, 2)).extracting(Quest::getId).containsExactly(1503L, 1506L);
+        assertThat(repository.findAllAfter(3000L, 10)).isEmpty();
+    }
+
+    @Test
+    void should_page_through_quests_that_are_being_written() {
+        var repository = new InMemoryQuestRepository(4);
+        for (long id = 1; id <= 100; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, null));
+        }
+
+        List<Quest> first = repository.findAllAfter(null, 10);
+        repository.compareAndSetStatus(15L, Status.NOT_STARTED, Status.IN_PROGRESS);
+        repository.save(new Quest(101L, "Quest 101", Status.NOT_STARTED, null));
+        List<Quest> second = repository.findAllAfter(first.getLast().getId(), 10);
+
+        assertThat(first).extracting(Quest::getId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(second).extracting(Quest::getId).containsExactly(11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L);
+        assertThat(second.get(4).getStatus()).isEqualTo(Status.IN_PROGRESS);
+        assertThat(repository.findAllAfter(95L, 10)).extracting(Quest::getId).containsExactly(96L, 97L, 98L, 99L, 100L, 101L);
+    }
+
+    @Test
+    void should_not_expose_stored_quests_to_mutation() {
+        var repository = new InMemoryQuestRepository();
+        var quest = new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP");
+        repository.save(quest);
+
+        quest.setStatus(Status.COMPLETED);
+        repository.findById(1L).orElseThrow().setStatus(Status.COMPLETED);
+
+        assertThat(repository.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.NOT_STARTED);
+    }
+
+    @Test
+    void should_keep_the_status_index_in_step_with_writes() {
+        var repository = new InMemoryQuestRepository();
+        for (long id = 1; id <= 300; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        for (long id = 1; id <= 300; id += 3) {
+            repository.compareAndSetStatus(id, Status.NOT_STARTED, Status.IN_PROGRESS);
+        }
+        repository.save(new Quest(2L, "Quest 2", Status.COMPLETED, "100 XP"));
+        repository.saveAll(List.of(new Quest(1L, "Quest 1", Status.COMPLETED, "100 XP"), new Quest(301L, "Quest 301", Status.IN_PROGRESS, "100 XP")));
+
+        assertThat(repository.countByStatus(Status.NOT_STARTED)).isEqualTo(199);
+        assertThat(repository.countByStatus(Status.IN_PROGRESS)).isEqualTo(100);
+        assertThat(repository.countByStatus(Status.COMPLETED)).isEqualTo(2);
+        assertThat(repository.findAllByStatus(Set.of(Status.COMPLETED))).extracting(Quest::getId).containsExactly(1L, 2L);
+        assertThat(repository.findAllByStatus(Set.of(Status.IN_PROGRESS, Status.COMPLETED)))
+                .hasSize(102)
+                .extracting(Quest::getId).isSorted()
+                .contains(1L, 2L, 4L, 301L)
+                .doesNotContain(3L);
+        assertThat(repository.findAllByStatus(Set.of())).isEmpty();
+    }
+}
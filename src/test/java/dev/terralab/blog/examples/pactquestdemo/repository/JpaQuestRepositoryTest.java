@@ -0,0 +1,192 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusTransitionException;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "quest.repository.type=jpa",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class JpaQuestRepositoryTest {
+
+    @Autowired
+    private QuestRepository repository;
+
+    @Autowired
+    private QuestService questService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void should_save_and_read_quests_in_batches() {
+        List<Quest> quests = new ArrayList<>();
+        for (long id = 1200; id > 1000; id--) {
+            quests.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        repository.saveAll(quests);
+        repository.save(new Quest(1001L, "Renamed", Status.IN_PROGRESS, "200 XP"));
+
+        assertThat(repository.findById(1001L)).contains(new Quest(1001L, "Renamed", Status.IN_PROGRESS, "200 XP"));
+        assertThat(repository.findAll()).filteredOn(quest -> quest.getId() > 1000 && quest.getId() <= 1200).hasSize(200).extracting(Quest::getId).isSorted();
+        assertThat(repository.findAllAfter(1100L, 3)).extracting(Quest::getId).containsExactly(1101L, 1102L, 1103L);
+        assertThat(repository.findAllById(List.of(1005L, 999_999L, 1001L))).extracting(Quest::getId).containsExactlyInAnyOrder(1005L, 1001L);
+    }
+
+    @Test
+    void should_overwrite_quests_without_loading_them() {
+        repository.saveAll(List.of(new Quest(1501L, "Quest 1501", Status.NOT_STARTED, "100 XP"),
+                new Quest(1502L, "Quest 1502", Status.NOT_STARTED, "100 XP")));
+        repository.findById(1501L);
+        long loads = statistics.getEntityLoadCount();
+
+        repository.saveAll(List.of(new Quest(1501L, "Renamed", Status.IN_PROGRESS, null),
+                new Quest(1503L, "Quest 1503", Status.NOT_STARTED, "100 XP")));
+
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(loads);
+        assertThat(repository.findById(1501L)).contains(new Quest(1501L, "Renamed", Status.IN_PROGRESS, null));
+        assertThat(repository.findById(1503L)).contains(new Quest(1503L, "Quest 1503", Status.NOT_STARTED, "100 XP"));
+        assertThat(repository.compareAndSetStatus(1501L, Status.IN_PROGRESS, Status.COMPLETED)).isTrue();
+    }
+
+    @Test
+    void should_not_cache_a_quest_read_while_it_was_being_overwritten() {
+        repository.save(new Quest(1601L, "Quest 1601", Status.NOT_STARTED, "100 XP"));
+        repository.findById(1601L);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            repository.saveAll(List.of(new Quest(1601L, "Renamed", Status.IN_PROGRESS, null)));
+            // another thread still reads the committed row, which must not end up in the cache
+            assertThat(CompletableFuture.supplyAsync(() -> repository.findById(1601L)).join())
+                    .get().extracting(Quest::getName).isEqualTo("Quest 1601");
+        });
+
+        assertThat(repository.findById(1601L)).contains(new Quest(1601L, "Renamed", Status.IN_PROGRESS, null));
+    }
+
+    @Test
+    void should_serve_repeated_lookups_from_the_second_level_cache() {
+        repository.save(new Quest(2001L, "Quest 2001", Status.NOT_STARTED, "100 XP"));
+        repository.findById(2001L);
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(repository.findById(2001L)).get().extracting(Quest::getName).isEqualTo("Quest 2001");
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hits + 10);
+    }
+
+    @Test
+    void should_only_apply_status_change_when_expected_status_matches() {
+        repository.save(new Quest(3001L, "Quest 3001", Status.NOT_STARTED, "100 XP"));
+
+        assertThat(repository.compareAndSetStatus(3001L, Status.IN_PROGRESS, Status.COMPLETED)).isFalse();
+        assertThat(repository.compareAndSetStatus(3001L, Status.NOT_STARTED, Status.IN_PROGRESS)).isTrue();
+        assertThat(repository.compareAndSetStatus(3001L, Status.NOT_STARTED, Status.IN_PROGRESS)).isFalse();
+        assertThat(repository.compareAndSetStatus(3999L, Status.NOT_STARTED, Status.IN_PROGRESS)).isFalse();
+        assertThat(repository.findById(3001L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+    }
+
+    @Test
+    void should_apply_a_batch_of_status_changes_in_one_transaction() {
+        Map<Long, QuestRepository.Transition> transitions = new HashMap<>();
+        for (long id = 3101; id <= 3150; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+            transitions.put(id, new QuestRepository.Transition(id == 3150 ? Status.IN_PROGRESS : Status.NOT_STARTED, Status.IN_PROGRESS));
+        }
+        transitions.put(3999L, new QuestRepository.Transition(Status.NOT_STARTED, Status.IN_PROGRESS));
+        long transactions = statistics.getTransactionCount();
+
+        Set<Long> updated = repository.compareAndSetStatuses(transitions);
+
+        assertThat(updated).hasSize(49).doesNotContain(3150L, 3999L);
+        assertThat(statistics.getTransactionCount() - transactions).isEqualTo(1);
+        assertThat(repository.findById(3101L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        assertThat(repository.findById(3150L)).get().extracting(Quest::getStatus).isEqualTo(Status.NOT_STARTED);
+    }
+
+    @Test
+    void should_allow_exactly_one_winner_per_quest_when_starting_concurrently() throws Exception {
+        for (long id = 4001; id <= 4020; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        var winners = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (long id = 4001; id <= 4020; id++) {
+                        try {
+                            questService.updateQuestStatus(id, new QuestUpdateRequestDto("IN_PROGRESS"));
+                            winners.incrementAndGet();
+                        } catch (InvalidStatusTransitionException e) {
+                            // another thread started it first
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(winners.get()).isEqualTo(20);
+    }
+
+    @Test
+    void should_find_and_count_quests_by_status() {
+        long completed = repository.countByStatus(Status.COMPLETED);
+        for (long id = 5001; id <= 5010; id++) {
+            repository.save(new Quest(id, "Quest " + id, id % 2 == 0 ? Status.COMPLETED : Status.IN_PROGRESS, "100 XP"));
+        }
+        repository.compareAndSetStatus(5001L, Status.IN_PROGRESS, Status.COMPLETED);
+
+        assertThat(repository.countByStatus(Status.COMPLETED)).isEqualTo(completed + 6);
+        assertThat(repository.findAllByStatus(Set.of(Status.COMPLETED)))
+                .filteredOn(quest -> quest.getId() > 5000 && quest.getId() <= 5010)
+                .extracting(Quest::getId).containsExactly(5001L, 5002L, 5004L, 5006L, 5008L, 5010L);
+    }
+}
@@ -0,0 +1,118 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.MappedLogRepositoryProperties.FsyncPolicy;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedLogQuestRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_recover_writes_across_compactions() throws IOException {
+        var repository = open(DataSize.ofKilobytes(4));
+        List<Quest> quests = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            quests.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, id % 2 == 0 ? "100 XP" : null));
+        }
+        repository.saveAll(quests);
+        for (long id = 1; id <= 100; id += 3) {
+            assertThat(repository.compareAndSetStatus(id, Status.NOT_STARTED, Status.IN_PROGRESS)).isTrue();
+        }
+        assertThat(repository.compareAndSetStatus(1L, Status.NOT_STARTED, Status.COMPLETED)).isFalse();
+        repository.save(new Quest(7L, "Quest seven", Status.COMPLETED, "Dragon scale"));
+        repository.close();
+
+        var recovered = open(DataSize.ofKilobytes(4));
+        assertThat(recovered.findAll()).hasSize(100);
+        assertThat(recovered.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        assertThat(recovered.findById(2L)).get().extracting(Quest::getStatus).isEqualTo(Status.NOT_STARTED);
+        assertThat(recovered.findById(3L)).get().extracting(Quest::getReward).isNull();
+        assertThat(recovered.findById(7L)).contains(new Quest(7L, "Quest seven", Status.COMPLETED, "Dragon scale"));
+        recovered.close();
+    }
+
+    @Test
+    void should_keep_writes_made_while_compacting() throws Exception {
+        var repository = open(DataSize.ofKilobytes(64));
+        List<Quest> quests = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            quests.add(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        repository.saveAll(quests);
+
+        var updates = CompletableFuture.runAsync(() -> {
+            for (long id = 1; id <= 2000; id++) {
+                assertThat(repository.compareAndSetStatus(id, Status.NOT_STARTED, Status.IN_PROGRESS)).isTrue();
+            }
+        });
+        while (!updates.isDone()) {
+            repository.compact();
+        }
+        updates.get(30, TimeUnit.SECONDS);
+        repository.close();
+
+        var recovered = open(DataSize.ofKilobytes(64));
+        assertThat(recovered.findAll()).hasSize(2000).extracting(Quest::getStatus).containsOnly(Status.IN_PROGRESS);
+        recovered.close();
+    }
+
+    @Test
+    void should_stop_replay_at_a_torn_record_and_never_resurrect_later_ones() throws IOException {
+        var repository = open(DataSize.ofMegabytes(1));
+        for (long id = 1; id <= 5; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        repository.close();
+        tearRecord(1);
+
+        var recovered = open(DataSize.ofMegabytes(1));
+        assertThat(recovered.findAll()).extracting(Quest::getId).containsExactly(1L);
+        recovered.save(new Quest(6L, "Quest 6", Status.NOT_STARTED, "100 XP"));
+        recovered.close();
+
+        var reopened = open(DataSize.ofMegabytes(1));
+        assertThat(reopened.findAll()).extracting(Quest::getId).containsExactly(1L, 6L);
+        reopened.close();
+    }
+
+    @Test
+    void should_reject_quests_that_do_not_fit_in_a_record() throws IOException {
+        var repository = open(DataSize.ofMegabytes(1));
+
+        assertThatThrownBy(() -> repository.save(new Quest(1L, "x".repeat(MappedLogQuestRepository.MAX_TEXT_BYTES), Status.NOT_STARTED, "100 XP")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(repository.findById(1L)).isEmpty();
+        repository.close();
+    }
+
+    private MappedLogQuestRepository open(DataSize logSize) throws IOException {
+        return new MappedLogQuestRepository(new MappedLogRepositoryProperties(
+                directory, logSize, FsyncPolicy.ALWAYS, Duration.ofMillis(100), Duration.ofHours(1), 0.5));
+    }
+
+    private void tearRecord(int slot) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(MappedLogQuestRepository.LOG_FILE), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), (slot + 1L) * MappedLogQuestRepository.RECORD_SIZE + 40);
+        }
+    }
+}
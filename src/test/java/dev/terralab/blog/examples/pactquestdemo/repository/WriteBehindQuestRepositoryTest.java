@@ -0,0 +1,162 @@
+package dev.terralab.blog.examples.pactquestdemo.repository;
+
+import dev.terralab.blog.examples.pactquestdemo.config.WriteBehindProperties;
+import dev.terralab.blog.examples.pactquestdemo.config.WriteBehindProperties.Durability;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.exception.StorageBacklogException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WriteBehindQuestRepositoryTest {
+
+    @Test
+    void should_coalesce_updates_and_flush_them_on_close() throws Exception {
+        var backing = new RecordingRepository();
+        backing.save(new Quest(3L, "Quest 3", Status.COMPLETED, "100 XP"));
+        var repository = writeBehind(backing, Durability.ASYNC, Duration.ofHours(1), 100);
+
+        repository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        repository.compareAndSetStatus(1L, Status.NOT_STARTED, Status.IN_PROGRESS);
+        repository.compareAndSetStatus(1L, Status.IN_PROGRESS, Status.COMPLETED);
+        repository.save(new Quest(2L, "Quest 2", Status.NOT_STARTED, "100 XP"));
+
+        assertThat(repository.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.COMPLETED);
+        assertThat(repository.findById(3L)).isPresent();
+        assertThat(backing.findById(1L)).isEmpty();
+        assertThat(repository.pending()).isEqualTo(2);
+
+        repository.close();
+
+        assertThat(backing.batches).containsExactly(2);
+        assertThat(backing.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.COMPLETED);
+        assertThat(backing.findById(2L)).isPresent();
+        assertThat(repository.pending()).isZero();
+    }
+
+    @Test
+    void should_only_acknowledge_flushed_writes_once_they_reached_the_backing_repository() throws Exception {
+        var backing = new RecordingRepository();
+        backing.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        var repository = writeBehind(backing, Durability.FLUSHED, Duration.ofHours(1), 100);
+        backing.block();
+
+        var update = CompletableFuture.supplyAsync(() -> repository.compareAndSetStatus(1L, Status.NOT_STARTED, Status.IN_PROGRESS));
+        Thread.sleep(200);
+        assertThat(update).isNotDone();
+
+        backing.unblock();
+        assertThat(update.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(backing.findById(1L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        assertThat(repository.compareAndSetStatus(1L, Status.NOT_STARTED, Status.IN_PROGRESS)).isFalse();
+        repository.close();
+    }
+
+    @Test
+    void should_push_back_on_writers_once_the_backlog_is_full() throws Exception {
+        var backing = new RecordingRepository();
+        var repository = writeBehind(backing, Durability.ASYNC, Duration.ofHours(1), 2);
+        backing.block();
+
+        repository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        repository.save(new Quest(2L, "Quest 2", Status.NOT_STARTED, "100 XP"));
+        repository.save(new Quest(2L, "Quest 2", Status.IN_PROGRESS, "100 XP"));
+
+        assertThatThrownBy(() -> repository.save(new Quest(3L, "Quest 3", Status.NOT_STARTED, "100 XP")))
+                .isInstanceOf(StorageBacklogException.class);
+        assertThat(repository.lagSeconds()).isPositive();
+
+        backing.unblock();
+        repository.save(new Quest(3L, "Quest 3", Status.NOT_STARTED, "100 XP"));
+        repository.close();
+        assertThat(backing.findAll()).extracting(Quest::getId).containsExactly(1L, 2L, 3L);
+        assertThat(backing.findById(2L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+    }
+
+    @Test
+    void should_park_quests_that_keep_failing_and_write_the_rest() throws Exception {
+        var backing = new RecordingRepository();
+        backing.reject(2L);
+        var repository = writeBehind(backing, Durability.FLUSHED, Duration.ofMillis(10), 100);
+
+        repository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        assertThatThrownBy(() -> repository.save(new Quest(2L, "Quest 2", Status.NOT_STARTED, "100 XP")))
+                .isInstanceOf(StorageBacklogException.class)
+                .hasMessageContaining("applied");
+        repository.save(new Quest(3L, "Quest 3", Status.NOT_STARTED, "100 XP"));
+
+        assertThat(repository.parked()).isEqualTo(1);
+        assertThat(repository.pending()).isZero();
+        assertThat(repository.findById(2L)).isPresent();
+        assertThat(backing.findAll()).extracting(Quest::getId).containsExactly(1L, 3L);
+
+        backing.reject(null);
+        repository.save(new Quest(2L, "Quest 2", Status.IN_PROGRESS, "100 XP"));
+        assertThat(repository.parked()).isZero();
+        assertThat(backing.findById(2L)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        repository.close();
+    }
+
+    private static WriteBehindQuestRepository writeBehind(QuestRepository backing, Durability durability, Duration flushInterval, int maxPending) {
+        var properties = new WriteBehindProperties(true, durability, flushInterval, 100, maxPending, Duration.ofMillis(300), 2,
+                Duration.ofSeconds(5));
+        return new WriteBehindQuestRepository(backing, properties, new SimpleMeterRegistry());
+    }
+
+    private static class RecordingRepository extends InMemoryQuestRepository {
+
+        private final List<Integer> batches = new ArrayList<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile Long rejected;
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void unblock() {
+            gate.countDown();
+        }
+
+        void reject(Long id) {
+            rejected = id;
+        }
+
+        @Override
+        public void save(Quest quest) {
+            checkRejected(List.of(quest));
+            super.save(quest);
+        }
+
+        @Override
+        public void saveAll(Collection<Quest> quests) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            checkRejected(quests);
+            synchronized (batches) {
+                batches.add(quests.size());
+            }
+            super.saveAll(quests);
+        }
+
+        private void checkRejected(Collection<Quest> quests) {
+            if (quests.stream().anyMatch(quest -> quest.getId().equals(rejected))) {
+                throw new IllegalStateException("Quest " + rejected + " is rejected");
+            }
+        }
+    }
+}
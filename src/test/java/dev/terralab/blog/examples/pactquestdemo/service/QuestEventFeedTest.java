@@ -0,0 +1,167 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestEventFeedProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestEventDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestEventFeedTest {
+
+    private final List<QuestEventFeed> feeds = new ArrayList<>();
+    private final QuestEventFeed feed = feed(4, 4, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        feeds.forEach(QuestEventFeed::close);
+    }
+
+    @Test
+    void should_resume_from_a_retained_sequence() {
+        for (long id = 1; id <= 3; id++) {
+            feed.onQuestStatusChanged(new QuestStatusChangedEvent(id, Status.NOT_STARTED, Status.IN_PROGRESS));
+        }
+
+        assertThat(feed.eventsAfter(1, 10)).extracting(QuestEventDto::sequence).containsExactly(2L, 3L);
+        assertThat(feed.eventsAfter(0, 2)).extracting(QuestEventDto::id).containsExactly(1L, 2L);
+        assertThat(feed.eventsAfter(3, 10)).isEmpty();
+    }
+
+    @Test
+    void should_refuse_to_resume_once_events_were_overwritten() {
+        for (long id = 1; id <= 6; id++) {
+            feed.onQuestStatusChanged(new QuestStatusChangedEvent(id, Status.IN_PROGRESS, Status.COMPLETED));
+        }
+
+        assertThat(feed.eventsAfter(1, 10)).isNull();
+        assertThat(feed.eventsAfter(2, 10)).extracting(QuestEventDto::sequence).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(feed.lastSequence()).isEqualTo(6);
+    }
+
+    @Test
+    void should_deliver_published_events_to_a_subscriber() throws Exception {
+        var emitter = new RecordingEmitter(null);
+        feed.subscribe(null, emitter);
+
+        for (long id = 1; id <= 3; id++) {
+            feed.onQuestStatusChanged(new QuestStatusChangedEvent(id, Status.NOT_STARTED, Status.IN_PROGRESS));
+        }
+
+        awaitTrue(() -> emitter.events.size() == 3);
+        assertThat(emitter.events).extracting(QuestEventDto::id).containsExactly(1L, 2L, 3L);
+        assertThat(emitter.events).extracting(QuestEventDto::sequence).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void should_disconnect_a_subscriber_more_than_max_lag_behind() throws Exception {
+        var feed = feed(16, 4, Duration.ofSeconds(5));
+        var release = new CountDownLatch(1);
+        var emitter = new RecordingEmitter(release);
+        feed.subscribe(null, emitter);
+        feed.onQuestStatusChanged(new QuestStatusChangedEvent(1L, Status.NOT_STARTED, Status.IN_PROGRESS));
+        awaitTrue(() -> emitter.sending);
+
+        for (long id = 2; id <= 10; id++) {
+            feed.onQuestStatusChanged(new QuestStatusChangedEvent(id, Status.NOT_STARTED, Status.IN_PROGRESS));
+        }
+        release.countDown();
+
+        awaitTrue(() -> emitter.completed);
+        assertThat(emitter.events).extracting(QuestEventDto::id).containsExactly(1L);
+        assertThat(feed.subscriberCount()).isZero();
+    }
+
+    @Test
+    void should_publish_without_waiting_for_a_stuck_subscriber_and_drop_it_after_the_send_timeout() throws Exception {
+        var feed = feed(1024, 1024, Duration.ofMillis(200));
+        var emitter = new RecordingEmitter(new CountDownLatch(1));
+        feed.subscribe(null, emitter);
+        feed.onQuestStatusChanged(new QuestStatusChangedEvent(1L, Status.NOT_STARTED, Status.IN_PROGRESS));
+        awaitTrue(() -> emitter.sending);
+
+        long start = System.nanoTime();
+        for (long id = 2; id <= 500; id++) {
+            feed.onQuestStatusChanged(new QuestStatusChangedEvent(id, Status.NOT_STARTED, Status.IN_PROGRESS));
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+        assertThat(feed.lastSequence()).isEqualTo(500);
+
+        awaitTrue(() -> emitter.error != null);
+        assertThat(feed.subscriberCount()).isZero();
+        awaitTrue(() -> emitter.interrupted);
+    }
+
+    private QuestEventFeed feed(int bufferSize, int maxLag, Duration sendTimeout) {
+        var feed = new QuestEventFeed(new QuestEventFeedProperties(bufferSize, maxLag, Duration.ofSeconds(5), sendTimeout));
+        feeds.add(feed);
+        return feed;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    /**
+     * Keeps the quest events it is sent. With a latch, the first send blocks until the latch
+     * opens or the sender is interrupted, like a write to a client that stopped reading.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<QuestEventDto> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean sending;
+        private volatile boolean interrupted;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (release != null) {
+                sending = true;
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    throw new IOException("Send interrupted", e);
+                }
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof QuestEventDto event) {
+                    events.add(event);
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            error = ex;
+            super.completeWithError(ex);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestExportProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestExporter.Export;
+import dev.terralab.blog.examples.pactquestdemo.service.QuestExporter.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InMemoryQuestRepository repository = new InMemoryQuestRepository();
+
+    @TempDir
+    private Path directory;
+
+    private QuestExporter exporter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (long id = 1; id <= 2500; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], id % 7 == 0 ? null : id + " XP"));
+        }
+        Files.writeString(directory.resolve(QuestExporter.FILE_PREFIX + "1" + QuestExporter.FILE_SUFFIX + ".tmp"), "partial");
+        Files.writeString(directory.resolve("notes.txt"), "kept");
+        exporter = new QuestExporter(repository, objectMapper, new QuestExportProperties(directory, Duration.ZERO, 2, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        exporter.close();
+    }
+
+    @Test
+    void should_write_every_quest_as_a_gzipped_json_line() throws Exception {
+        assertThat(files()).containsExactly("notes.txt");
+
+        Export export = awaitCompletion(exporter.start());
+
+        assertThat(export.quests()).isEqualTo(2500);
+        assertThat(export.bytes()).isEqualTo(Files.size(export.file()));
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(export.file())), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        assertThat(lines).hasSize(2500);
+        for (int i = 0; i < lines.size(); i++) {
+            Quest quest = repository.findAll().get(i);
+            assertThat(objectMapper.readValue(lines.get(i), QuestResponseDto.class)).isEqualTo(QuestResponseDto.from(quest));
+        }
+    }
+
+    @Test
+    void should_keep_only_the_newest_exports() throws Exception {
+        Export first = awaitCompletion(exporter.start());
+        Export second = awaitCompletion(exporter.start());
+        repository.save(new Quest(2501L, "Quest 2501", Status.NOT_STARTED, null));
+        Export third = awaitCompletion(exporter.start());
+
+        assertThat(third.quests()).isEqualTo(2501);
+        assertThat(exporter.latestCompleted()).contains(third);
+        assertThat(Files.exists(first.file())).isFalse();
+        assertThat(files()).containsExactlyInAnyOrder("notes.txt",
+                second.file().getFileName().toString(), third.file().getFileName().toString());
+    }
+
+    private Export awaitCompletion(Export started) throws InterruptedException {
+        assertThat(started.state()).isEqualTo(State.RUNNING);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            Export latest = exporter.latest().orElseThrow();
+            if (latest.id().equals(started.id()) && latest.state() != State.RUNNING) {
+                assertThat(latest.state()).isEqualTo(State.COMPLETED);
+                return latest;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Export " + started.id() + " did not complete");
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+}
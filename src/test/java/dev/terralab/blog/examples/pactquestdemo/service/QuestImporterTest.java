@@ -0,0 +1,147 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestImportProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestCreateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportErrorDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestImportReportDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidRequestException;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusException;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class QuestImporterTest {
+
+    private final List<Integer> batches = new ArrayList<>();
+    private InMemoryQuestRepository repository;
+    private QuestService questService;
+    private QuestImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryQuestRepository() {
+            @Override
+            public void saveAll(Collection<Quest> quests) {
+                batches.add(quests.size());
+                super.saveAll(quests);
+            }
+
+            @Override
+            public int maxTextBytes() {
+                return 64;
+            }
+        };
+        repository.save(new Quest(5L, "Quest 5", Status.IN_PROGRESS, "100 XP"));
+        QuestMetrics metrics = new QuestMetrics(new SimpleMeterRegistry());
+        questService = QuestServiceFixtures.questService(repository, metrics);
+        importer = new QuestImporter(questService, metrics, new ObjectMapper(), new QuestImportProperties(3, 2, 256));
+    }
+
+    @Test
+    void should_import_ndjson_in_batches_and_report_row_errors() throws Exception {
+        QuestImportReportDto report = importer.importQuests(body("""
+                {"name":"Gather herbs","status":"NOT_STARTED","reward":"10 XP"}
+                {"name":"Slay the dragon","status":"ON_HOLD"}
+
+                {"id":20,"name":"Find the ring","status":"IN_PROGRESS","reward":null}
+                {"name":"Rescue the cat"}
+                {"name":
+                {"status":"COMPLETED"}
+                {"id":5,"name":"Quest 5 revised","status":"COMPLETED","reward":"200 XP"}
+                {"name":"Map the caves","status":"COMPLETED"}
+                """), QuestImporter.Format.NDJSON);
+
+        assertThat(report.rows()).isEqualTo(8);
+        assertThat(report.imported()).isEqualTo(5);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.errors()).extracting(QuestImportErrorDto::line).containsExactly(2L, 6L);
+        assertThat(report.errors().getFirst().error().message()).isEqualTo("Invalid status");
+        assertThat(batches).containsExactly(3, 2);
+
+        assertThat(repository.findAll()).extracting(Quest::getId, Quest::getName, Quest::getStatus).containsExactly(
+                tuple(5L, "Quest 5 revised", Status.COMPLETED),
+                tuple(20L, "Find the ring", Status.IN_PROGRESS),
+                tuple(21L, "Gather herbs", Status.NOT_STARTED),
+                tuple(22L, "Rescue the cat", Status.NOT_STARTED),
+                tuple(23L, "Map the caves", Status.COMPLETED));
+    }
+
+    @Test
+    void should_import_csv_with_quoted_fields_and_any_column_order() throws Exception {
+        QuestImportReportDto report = importer.importQuests(body("""
+                \uFEFFStatus,Name,Reward,Id
+                IN_PROGRESS,"Slay the ""Dragon"", again","1,000 XP",
+                ,Gather herbs,,
+                COMPLETED,Broken,,abc
+                NOT_STARTED,"Unterminated,,
+                """), QuestImporter.Format.CSV);
+
+        assertThat(report.rows()).isEqualTo(4);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.errors()).extracting(QuestImportErrorDto::line).containsExactly(4L, 5L);
+        assertThat(repository.findById(6L)).get()
+                .extracting(Quest::getName, Quest::getStatus, Quest::getReward)
+                .containsExactly("Slay the \"Dragon\", again", Status.IN_PROGRESS, "1,000 XP");
+        assertThat(repository.findById(7L)).get()
+                .extracting(Quest::getName, Quest::getStatus, Quest::getReward)
+                .containsExactly("Gather herbs", Status.NOT_STARTED, null);
+
+        assertThatThrownBy(() -> importer.importQuests(body("id,status\n1,COMPLETED\n"), QuestImporter.Format.CSV))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void should_skip_and_report_rows_longer_than_the_line_limit() throws Exception {
+        String oversized = "{\"name\":\"" + "x".repeat(10_000) + "\"}";
+        QuestImportReportDto report = importer.importQuests(body(
+                "{\"name\":\"Gather herbs\"}\r\n" + oversized + "\r\n{\"name\":\"Slay the dragon\"}\n"),
+                QuestImporter.Format.NDJSON);
+
+        assertThat(report.rows()).isEqualTo(3);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.errors()).extracting(QuestImportErrorDto::line).containsExactly(2L);
+        assertThat(report.errors().getFirst().error().message()).isEqualTo("Row is longer than 256 characters");
+        assertThat(repository.findAll()).extracting(Quest::getName).contains("Gather herbs", "Slay the dragon");
+
+        report = importer.importQuests(body("name\n" + "x".repeat(100_000)), QuestImporter.Format.CSV);
+        assertThat(report.failed()).isEqualTo(1);
+        assertThat(report.errors()).extracting(QuestImportErrorDto::line).containsExactly(2L);
+
+        assertThatThrownBy(() -> importer.importQuests(body("name," + "x".repeat(1_000)), QuestImporter.Format.CSV))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void should_allocate_ids_above_every_stored_quest_when_creating() {
+        assertThat(questService.createQuest(new QuestCreateRequestDto("Gather herbs", null, "10 XP")).id()).isEqualTo(6L);
+        repository.save(new Quest(40L, "Quest 40", Status.NOT_STARTED, null));
+        assertThat(questService.createQuest(new QuestCreateRequestDto("Slay the dragon", "IN_PROGRESS", null)))
+                .isEqualTo(new QuestResponseDto(41L, "Slay the dragon", "IN_PROGRESS", null));
+
+        assertThatThrownBy(() -> questService.createQuest(new QuestCreateRequestDto(" ", null, null)))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> questService.createQuest(new QuestCreateRequestDto("Quest", "ON_HOLD", null)))
+                .isInstanceOf(InvalidStatusException.class);
+        assertThatThrownBy(() -> questService.createQuest(new QuestCreateRequestDto("Q".repeat(64), null, "X")))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestSerializationProperties;
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestJsonFragmentsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QuestJsonFragments fragments = new QuestJsonFragments(objectMapper, QuestServiceFixtures.SERIALIZATION);
+
+    @Test
+    void should_produce_the_same_bytes_as_serializing_the_response_list() throws Exception {
+        List<Quest> quests = new ArrayList<>();
+        quests.add(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        quests.add(new Quest(2L, "The \"Dragon\" \\ Lair\n", Status.IN_PROGRESS, "Épée 🗡"));
+        quests.add(new Quest(3L, null, Status.COMPLETED, null));
+        for (long id = 4; id <= 200; id++) {
+            quests.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], id * 10 + " XP"));
+        }
+
+        assertThat(fragments.toJsonArray(quests)).isEqualTo(expected(quests));
+        assertThat(fragments.toJsonArray(quests)).isEqualTo(expected(quests));
+        assertThat(fragments.toJsonArray(List.of())).isEqualTo(expected(List.of()));
+    }
+
+    @Test
+    void should_rebuild_a_fragment_once_the_quest_has_changed() throws Exception {
+        fragments.toJsonArray(List.of(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP")));
+
+        List<Quest> renamed = List.of(new Quest(1L, "Renamed", Status.NOT_STARTED, "100 XP"));
+        assertThat(fragments.toJsonArray(renamed)).isEqualTo(expected(renamed));
+
+        fragments.onQuestStatusChanged(new QuestStatusChangedEvent(1L, Status.NOT_STARTED, Status.IN_PROGRESS));
+        assertThat(fragments.size()).isZero();
+        List<Quest> started = List.of(new Quest(1L, "Renamed", Status.IN_PROGRESS, "100 XP"));
+        assertThat(fragments.toJsonArray(started)).isEqualTo(expected(started));
+    }
+
+    @Test
+    void should_produce_the_same_bytes_when_serializing_chunks_in_parallel() throws Exception {
+        QuestJsonFragments parallel = new QuestJsonFragments(objectMapper, new QuestSerializationProperties(4, 0, 16, DataSize.ofMegabytes(64)));
+        try {
+            List<Quest> quests = new ArrayList<>();
+            quests.add(new Quest(1L, "The \"Dragon\" \\ Lair\n", Status.IN_PROGRESS, "Épée 🗡"));
+            quests.add(new Quest(2L, null, Status.COMPLETED, null));
+            for (long id = 3; id <= 1000; id++) {
+                quests.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], id * 10 + " XP"));
+            }
+
+            assertThat(parallel.toJsonArray(quests)).isEqualTo(expected(quests));
+            assertThat(parallel.toJsonArray(quests)).isEqualTo(expected(quests));
+            assertThat(parallel.toJsonArray(quests.subList(0, 32))).isEqualTo(expected(quests.subList(0, 32)));
+            assertThat(parallel.toJsonArray(quests.subList(0, 33))).isEqualTo(expected(quests.subList(0, 33)));
+        } finally {
+            parallel.close();
+        }
+    }
+
+    @Test
+    void should_keep_the_fragments_within_the_configured_size() throws Exception {
+        QuestJsonFragments bounded = new QuestJsonFragments(objectMapper, new QuestSerializationProperties(1, 20_000, 4096, DataSize.ofKilobytes(16)));
+        List<Quest> quests = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            quests.add(new Quest(id, "Quest " + id, Status.values()[(int) (id % 3)], id * 10 + " XP"));
+        }
+
+        assertThat(bounded.toJsonArray(quests)).isEqualTo(expected(quests));
+        assertThat(bounded.toJsonArray(quests)).isEqualTo(expected(quests));
+        assertThat(bounded.sizeInBytes()).isPositive().isLessThanOrEqualTo(DataSize.ofKilobytes(16).toBytes());
+        assertThat(bounded.size()).isPositive().isLessThan(1000);
+    }
+
+    private byte[] expected(List<Quest> quests) throws Exception {
+        return objectMapper.writeValueAsBytes(quests.stream().map(QuestResponseDto::from).toList());
+    }
+}
@@ -0,0 +1,83 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.InstrumentedQuestRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private QuestService questService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        var repository = new InMemoryQuestRepository();
+        repository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        repository.save(new Quest(2L, "Quest 2", Status.IN_PROGRESS, "100 XP"));
+        var metrics = new QuestMetrics(registry);
+        questService = QuestServiceFixtures.questService(repository,
+                event -> metrics.onQuestStatusChanged((QuestStatusChangedEvent) event), metrics);
+    }
+
+    @Test
+    void should_time_operations_and_count_transitions_and_quests() {
+        questService.getQuestsJson();
+        questService.updateQuestStatus(1L, new QuestUpdateRequestDto("IN_PROGRESS"));
+        questService.updateQuestStatus(2L, new QuestUpdateRequestDto("COMPLETED"));
+
+        assertThat(registry.get(QuestMetrics.SERVICE_CALLS).tag("operation", "getQuests").timer().count()).isEqualTo(1);
+        assertThat(registry.get(QuestMetrics.SERVICE_CALLS).tag("operation", "updateQuestStatus").timer().count()).isEqualTo(2);
+        assertThat(registry.get(InstrumentedQuestRepository.CALLS).tag("method", "findAll").timer().count()).isEqualTo(1);
+        assertThat(registry.get(InstrumentedQuestRepository.CALLS).tag("method", "findById").timer().count()).isEqualTo(2);
+        assertThat(registry.get(InstrumentedQuestRepository.CALLS).tag("method", "compareAndSetStatus").timer().count()).isEqualTo(2);
+        assertThat(registry.get(QuestMetrics.TRANSITIONS).tags("from", "NOT_STARTED", "to", "IN_PROGRESS").counter().count()).isEqualTo(1);
+        assertThat(registry.get(QuestMetrics.TRANSITIONS).tags("from", "IN_PROGRESS", "to", "COMPLETED").counter().count()).isEqualTo(1);
+        assertThat(registry.get(QuestMetrics.QUESTS).tag("status", "IN_PROGRESS").gauge().value()).isEqualTo(1);
+        assertThat(registry.get(QuestMetrics.QUESTS).tag("status", "COMPLETED").gauge().value()).isEqualTo(1);
+        assertThat(registry.get(QuestMetrics.QUESTS).tag("status", "NOT_STARTED").gauge().value()).isZero();
+    }
+
+    @Test
+    void should_time_encoding_as_part_of_a_list_read() throws IOException {
+        byte[] encoded = questService.getQuests(quests -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(25));
+            return new byte[quests.size()];
+        });
+
+        assertThat(encoded).hasSize(2);
+        assertThat(registry.get(QuestMetrics.SERVICE_CALLS).tag("operation", "getQuests").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void should_count_quests_once_per_interval_for_all_gauges() {
+        var scraped = new SimpleMeterRegistry();
+        var metrics = new QuestMetrics(scraped);
+        var counts = new AtomicInteger();
+        metrics.registerQuestCounts(status -> {
+            counts.incrementAndGet();
+            return 7;
+        });
+
+        for (int scrape = 0; scrape < 3; scrape++) {
+            scraped.find(QuestMetrics.QUESTS).gauges().forEach(Gauge::value);
+        }
+
+        assertThat(counts.get()).isEqualTo(Status.values().length);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.config.QuestResponseCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestResponseCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void should_serve_cached_bytes_until_invalidated() throws Exception {
+        var cache = new QuestResponseCache(new QuestResponseCacheProperties(true, DataSize.ofKilobytes(1), 4), registry);
+        var loads = new AtomicInteger();
+
+        var first = cache.get("quests", "\"1\"", () -> bytes("v" + loads.incrementAndGet()));
+        var second = cache.get("quests", "\"1\"", () -> bytes("v" + loads.incrementAndGet()));
+        cache.invalidate();
+        var third = cache.get("quests", "\"1\"", () -> bytes("v" + loads.incrementAndGet()));
+
+        assertThat(second).isSameAs(first);
+        assertThat(third.body()).isEqualTo(bytes("v2"));
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(2);
+        assertThat(registry.get(QuestResponseCache.REQUESTS).tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get(QuestResponseCache.REQUESTS).tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get(QuestResponseCache.INVALIDATIONS).functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_store_a_response_loaded_across_an_invalidation() throws Exception {
+        var cache = new QuestResponseCache(new QuestResponseCacheProperties(true, DataSize.ofKilobytes(1), 4), registry);
+
+        cache.get("quests", "\"1\"", () -> {
+            cache.invalidate();
+            return bytes("stale");
+        });
+        var fresh = cache.get("quests", "\"1\"", () -> bytes("fresh"));
+
+        assertThat(fresh.body()).isEqualTo(bytes("fresh"));
+    }
+
+    @Test
+    void should_miss_when_the_requested_etag_differs() throws Exception {
+        var cache = new QuestResponseCache(new QuestResponseCacheProperties(true, DataSize.ofKilobytes(1), 4), registry);
+
+        cache.get("quests", "\"1\"", () -> bytes("v1"));
+        var newer = cache.get("quests", "\"2\"", () -> bytes("v2"));
+
+        assertThat(newer.body()).isEqualTo(bytes("v2"));
+        assertThat(newer.etag()).isEqualTo("\"2\"");
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void should_evict_least_recently_used_entries_beyond_size_bound() throws Exception {
+        var cache = new QuestResponseCache(new QuestResponseCacheProperties(true, DataSize.ofBytes(10), 4), registry);
+
+        cache.get("a", "\"1\"", () -> new byte[4]);
+        cache.get("b", "\"1\"", () -> new byte[4]);
+        cache.get("a", "\"1\"", () -> new byte[4]);
+        cache.get("c", "\"1\"", () -> new byte[4]);
+        cache.get("huge", "\"1\"", () -> new byte[11]);
+
+        assertThat(cache.evictions()).isEqualTo(1);
+        assertThat(cache.sizeInBytes()).isEqualTo(8);
+        assertThat(registry.get(QuestResponseCache.EVICTIONS).functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get(QuestResponseCache.SIZE).gauge().value()).isEqualTo(8);
+        cache.get("a", "\"1\"", () -> new byte[4]);
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
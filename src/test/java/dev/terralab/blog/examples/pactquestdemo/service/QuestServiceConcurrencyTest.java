@@ -0,0 +1,128 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.QuestStatusChangedEvent;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.exception.InvalidStatusTransitionException;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestServiceConcurrencyTest {
+
+    private static final int QUESTS = 500;
+    private static final int THREADS = 16;
+
+    @Test
+    void should_allow_exactly_one_winner_per_quest_when_starting_concurrently() throws Exception {
+        var repository = new InMemoryQuestRepository();
+        for (long id = 1; id <= QUESTS; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        var questService = QuestServiceFixtures.questService(repository);
+        var winners = new AtomicIntegerArray(QUESTS + 1);
+        var rejections = new AtomicIntegerArray(QUESTS + 1);
+        var start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long id = 1; id <= QUESTS; id++) {
+                        try {
+                            questService.updateQuestStatus(id, new QuestUpdateRequestDto("IN_PROGRESS"));
+                            winners.incrementAndGet((int) id);
+                        } catch (InvalidStatusTransitionException e) {
+                            rejections.incrementAndGet((int) id);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int id = 1; id <= QUESTS; id++) {
+            assertThat(winners.get(id)).as("winners for quest %d", id).isEqualTo(1);
+            assertThat(rejections.get(id)).as("rejections for quest %d", id).isEqualTo(THREADS - 1);
+            assertThat(repository.findById((long) id)).get().extracting(Quest::getStatus).isEqualTo(Status.IN_PROGRESS);
+        }
+    }
+
+    @Test
+    void should_publish_each_quests_transitions_in_the_order_they_were_applied() throws Exception {
+        var repository = new InMemoryQuestRepository();
+        for (long id = 1; id <= QUESTS; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, "100 XP"));
+        }
+        List<QuestStatusChangedEvent> published = Collections.synchronizedList(new ArrayList<>());
+        var questService = QuestServiceFixtures.questService(repository, event -> {
+            if (event instanceof QuestStatusChangedEvent changed && changed.from() == Status.NOT_STARTED && changed.id() % 10 == 0) {
+                // a starter that is slow to publish gives the completer time to overtake it
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            published.add((QuestStatusChangedEvent) event);
+        }, new QuestMetrics(new SimpleMeterRegistry()));
+        var start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> starter = executor.submit(() -> {
+                start.await();
+                for (long id = 1; id <= QUESTS; id++) {
+                    questService.updateQuestStatus(id, new QuestUpdateRequestDto("IN_PROGRESS"));
+                }
+                return null;
+            });
+            Future<?> completer = executor.submit(() -> {
+                start.await();
+                for (long id = 1; id <= QUESTS; id++) {
+                    while (true) {
+                        try {
+                            questService.updateQuestStatus(id, new QuestUpdateRequestDto("COMPLETED"));
+                            break;
+                        } catch (InvalidStatusTransitionException e) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+                return null;
+            });
+            start.countDown();
+            starter.get(30, TimeUnit.SECONDS);
+            completer.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Long, Status> replayed = new HashMap<>();
+        for (QuestStatusChangedEvent event : published) {
+            assertThat(replayed.getOrDefault(event.id(), Status.NOT_STARTED)).as("state of quest %d", event.id()).isEqualTo(event.from());
+            replayed.put(event.id(), event.to());
+        }
+        assertThat(published).hasSize(2 * QUESTS);
+    }
+}
@@ -0,0 +1,35 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.terralab.blog.examples.pactquestdemo.config.QuestSerializationProperties;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Builds the {@link QuestService} that tests and benchmarks run against: the default
+ * serialization settings, no event listeners unless given, and metrics on a
+ * {@link SimpleMeterRegistry} unless given.
+ */
+public final class QuestServiceFixtures {
+
+    public static final QuestSerializationProperties SERIALIZATION =
+            new QuestSerializationProperties(0, 20_000, 4096, DataSize.ofMegabytes(64));
+
+    private QuestServiceFixtures() {
+    }
+
+    public static QuestService questService(QuestRepository repository) {
+        return questService(repository, new QuestMetrics(new SimpleMeterRegistry()));
+    }
+
+    public static QuestService questService(QuestRepository repository, QuestMetrics metrics) {
+        return questService(repository, event -> {
+        }, metrics);
+    }
+
+    public static QuestService questService(QuestRepository repository, ApplicationEventPublisher eventPublisher, QuestMetrics metrics) {
+        return new QuestService(repository, eventPublisher, new QuestJsonFragments(new ObjectMapper(), SERIALIZATION), metrics);
+    }
+}
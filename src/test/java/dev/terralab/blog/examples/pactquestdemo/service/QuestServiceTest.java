@@ -0,0 +1,76 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import dev.terralab.blog.examples.pactquestdemo.domain.Quest;
+import dev.terralab.blog.examples.pactquestdemo.domain.Status;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateRequestDto;
+import dev.terralab.blog.examples.pactquestdemo.dto.QuestBatchUpdateResultDto;
+import dev.terralab.blog.examples.pactquestdemo.repository.InMemoryQuestRepository;
+import dev.terralab.blog.examples.pactquestdemo.repository.QuestRepository.Transition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestServiceTest {
+
+    private InMemoryQuestRepository questRepository;
+    private QuestService questService;
+
+    @BeforeEach
+    void setUp() {
+        questRepository = new InMemoryQuestRepository();
+        questRepository.save(new Quest(1L, "Quest 1", Status.NOT_STARTED, "100 XP"));
+        questRepository.save(new Quest(2L, "Quest 2", Status.IN_PROGRESS, "100 XP"));
+        questRepository.save(new Quest(3L, "Quest 3", Status.COMPLETED, "100 XP"));
+        questService = QuestServiceFixtures.questService(questRepository);
+    }
+
+    @Test
+    void should_report_per_item_results_for_batch_updates() {
+        var results = questService.updateQuestStatuses(List.of(
+                new QuestBatchUpdateRequestDto(1L, "IN_PROGRESS"),
+                new QuestBatchUpdateRequestDto(1L, "COMPLETED"),
+                new QuestBatchUpdateRequestDto(2L, "COMPLETED"),
+                new QuestBatchUpdateRequestDto(3L, "NOT_STARTED"),
+                new QuestBatchUpdateRequestDto(4L, "COMPLETED"),
+                new QuestBatchUpdateRequestDto(2L, "UNKNOWN")
+        ));
+
+        assertThat(results).extracting(QuestBatchUpdateResultDto::success)
+                .containsExactly(true, true, true, false, false, false);
+        assertThat(results).extracting(result -> result.error() == null ? null : result.error().code())
+                .containsExactly(null, null, null, "INVALID_ACTION", "NOT_FOUND", "BAD_REQUEST");
+        assertThat(results.get(1).quest().status()).isEqualTo("COMPLETED");
+        assertThat(questRepository.findAll()).extracting(Quest::getStatus).containsOnly(Status.COMPLETED);
+    }
+
+    @Test
+    void should_apply_distinct_batch_updates_with_one_conditional_update() {
+        List<Integer> batches = new ArrayList<>();
+        var repository = new InMemoryQuestRepository() {
+            @Override
+            public Set<Long> compareAndSetStatuses(Map<Long, Transition> transitions) {
+                batches.add(transitions.size());
+                return super.compareAndSetStatuses(transitions);
+            }
+        };
+        List<QuestBatchUpdateRequestDto> updates = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            repository.save(new Quest(id, "Quest " + id, Status.NOT_STARTED, null));
+            updates.add(new QuestBatchUpdateRequestDto(id, "IN_PROGRESS"));
+        }
+        updates.add(new QuestBatchUpdateRequestDto(7L, "COMPLETED"));
+        var service = QuestServiceFixtures.questService(repository);
+
+        var results = service.updateQuestStatuses(updates);
+
+        assertThat(results).extracting(QuestBatchUpdateResultDto::success).containsOnly(true);
+        assertThat(batches).containsExactly(100, 1);
+        assertThat(repository.findById(7L)).get().extracting(Quest::getStatus).isEqualTo(Status.COMPLETED);
+    }
+}
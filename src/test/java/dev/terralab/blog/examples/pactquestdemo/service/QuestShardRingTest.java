@@ -0,0 +1,53 @@
+package dev.terralab.blog.examples.pactquestdemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuestShardRingTest {
+
+    private static final int IDS = 100_000;
+
+    @Test
+    void should_assign_ids_independently_of_node_order() {
+        var ring = new QuestShardRing(List.of("a", "b", "c"), 128);
+        var reordered = new QuestShardRing(List.of("c", "a", "b"), 128);
+
+        for (long id = 1; id <= IDS; id++) {
+            assertThat(reordered.ownerOf(id)).isEqualTo(ring.ownerOf(id));
+        }
+    }
+
+    @Test
+    void should_spread_ids_evenly_across_nodes() {
+        var ring = new QuestShardRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> owned = new HashMap<>();
+        for (long id = 1; id <= IDS; id++) {
+            owned.merge(ring.ownerOf(id), 1, Integer::sum);
+        }
+
+        assertThat(owned).hasSize(4);
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(IDS / 4 * 8 / 10, IDS / 4 * 12 / 10));
+    }
+
+    @Test
+    void should_only_move_ids_to_the_added_node() {
+        var ring = new QuestShardRing(List.of("a", "b", "c"), 128);
+        var grown = new QuestShardRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (long id = 1; id <= IDS; id++) {
+            String before = ring.ownerOf(id);
+            String after = grown.ownerOf(id);
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("d");
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(IDS / 4 * 8 / 10, IDS / 4 * 12 / 10);
+    }
+}